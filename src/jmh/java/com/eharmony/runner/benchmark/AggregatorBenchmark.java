@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.SketchAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to finalize an aggregator holding {@code size} values, as the statistics output does at the end of a run.
+ * Exact aggregators sort their values on the first statistic read, so every invocation gets a freshly filled one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AggregatorBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"exact", "sketch"})
+    public String aggregator;
+
+    private long[] values;
+    private Aggregators.Aggregator filledAggregator;
+
+    @Setup
+    public void createValues() {
+        final Random random = new Random(BenchmarkFiles.SEED);
+        values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(BenchmarkFiles.MAX_VALUE);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillAggregator() {
+        filledAggregator = "sketch".equals(aggregator)
+                ? new SketchAggregator(Aggregators.DEFAULT_SKETCH_ACCURACY)
+                : new Aggregators.ExactAggregator();
+        for (long value : values) {
+            filledAggregator.add(value);
+        }
+    }
+
+    @Benchmark
+    public Double median() {
+        return filledAggregator.getMedian();
+    }
+
+    @Benchmark
+    public Long mode() {
+        return filledAggregator.getMode();
+    }
+
+    /**
+     * Every statistic the output writers print, which share the sorting work of the exact aggregator.
+     */
+    @Benchmark
+    public double allStatistics() {
+        return filledAggregator.getMean() + filledAggregator.getMedian() + filledAggregator.getMode()
+                + filledAggregator.getMin() + filledAggregator.getMax() + filledAggregator.getPercentile(0.9)
+                + filledAggregator.getPercentile(0.99) + filledAggregator.getPercentile(0.999);
+    }
+}
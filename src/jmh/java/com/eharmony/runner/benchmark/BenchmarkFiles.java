@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the benchmarks. Values come from a fixed seed, so every run reads exactly the same data.
+ */
+final class BenchmarkFiles {
+    static final long SEED = 42L;
+    static final int MAX_VALUE = 100000;
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * @return a temporary file of {@code lines} lines each holding one int, deleted when the JVM exits
+     */
+    static File createNumberFile(final int lines) throws IOException {
+        final File file = File.createTempFile("benchmark-numbers", ".txt");
+        file.deleteOnExit();
+        final Random random = new Random(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(Integer.toString(random.nextInt(MAX_VALUE)));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return {@code lines} lines of {@code columns} ints joined by the separator
+     */
+    static String[] createLines(final int lines, final int columns, final String separator) {
+        final Random random = new Random(SEED);
+        final String[] result = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            final StringBuilder line = new StringBuilder();
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    line.append(separator);
+                }
+                line.append(random.nextInt(MAX_VALUE));
+            }
+            result[i] = line.toString();
+        }
+        return result;
+    }
+}
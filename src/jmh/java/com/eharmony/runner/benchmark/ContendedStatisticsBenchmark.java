@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.Counters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of tasks updating the same counter and aggregator from several threads at once. The benchmarks run at
+ * each thread count of the nested classes; compare their scores to see how updates scale. Aggregators are emptied
+ * before every iteration, as exact aggregators keep every value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ContendedStatisticsBenchmark {
+    private static final String NAME = "BENCHMARK";
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        Counters.clearCounters();
+    }
+
+    @Benchmark
+    public void incrementCounter() {
+        Counters.incrementCounter(NAME);
+    }
+
+    @Benchmark
+    public void aggregate(final AggregatorState state) {
+        Aggregators.aggregate(NAME, ThreadLocalRandom.current().nextInt(BenchmarkFiles.MAX_VALUE));
+    }
+
+    @State(Scope.Benchmark)
+    public static class AggregatorState {
+        /**
+         * exact keeps every value, sketch keeps a fixed size quantile sketch.
+         */
+        @Param({"exact", "sketch"})
+        public String aggregator;
+
+        @Setup(Level.Iteration)
+        public void resetAggregators() {
+            final Properties properties = new Properties();
+            if ("sketch".equals(aggregator)) {
+                properties.setProperty(Aggregators.RUNNER_AGGREGATOR_SKETCH, NAME);
+            }
+            Aggregators.configure(properties);
+            Aggregators.getAggregators().clear();
+        }
+    }
+
+    @Threads(1)
+    public static class OneThread extends ContendedStatisticsBenchmark {
+    }
+
+    @Threads(2)
+    public static class TwoThreads extends ContendedStatisticsBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends ContendedStatisticsBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends ContendedStatisticsBenchmark {
+    }
+}
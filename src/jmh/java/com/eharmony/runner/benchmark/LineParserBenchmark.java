@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import com.eharmony.runner.input.ByteLine;
+import com.eharmony.runner.input.DelimitedLineParser;
+import com.eharmony.runner.input.IntegerLineParser;
+import com.eharmony.runner.input.LongNumberLineParser;
+import com.eharmony.runner.input.PairIntegerCSVLineParser;
+import com.eharmony.runner.input.PairIntegerLineParser;
+import com.eharmony.runner.input.StringLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per line for each LineParser, from a String as the pipelined and reject paths hand it over and from a
+ * ByteLine as the byte readers do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineParserBenchmark {
+    private static final int LINES = 1024;
+    private static final int WIDE_COLUMNS = 40;
+
+    private final StringLineParser stringParser = new StringLineParser();
+    private final IntegerLineParser integerParser = new IntegerLineParser();
+    private final LongNumberLineParser longParser = new LongNumberLineParser();
+    private final PairIntegerLineParser pairParser = new PairIntegerLineParser();
+    private final PairIntegerCSVLineParser pairCsvParser = new PairIntegerCSVLineParser();
+    private final DelimitedLineParser delimitedParser = new DelimitedLineParser();
+
+    private String[] numberLines;
+    private ByteLine[] numberBytes;
+    private String[] pairLines;
+    private ByteLine[] pairBytes;
+    private String[] pairCsvLines;
+    private ByteLine[] pairCsvBytes;
+    private String[] wideCsvLines;
+    private ByteLine[] wideCsvBytes;
+
+    @Setup
+    public void createLines() {
+        numberLines = BenchmarkFiles.createLines(LINES, 1, "");
+        pairLines = BenchmarkFiles.createLines(LINES, 2, " ");
+        pairCsvLines = BenchmarkFiles.createLines(LINES, 2, ",");
+        wideCsvLines = BenchmarkFiles.createLines(LINES, WIDE_COLUMNS, ",");
+        numberBytes = toByteLines(numberLines);
+        pairBytes = toByteLines(pairLines);
+        pairCsvBytes = toByteLines(pairCsvLines);
+        wideCsvBytes = toByteLines(wideCsvLines);
+
+        final Properties properties = new Properties();
+        properties.setProperty(DelimitedLineParser.RUNNER_PARSER_COLUMNS, "3:long,17:int");
+        delimitedParser.configure(properties);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void stringLine(final Blackhole blackhole) {
+        for (String line : numberLines) {
+            blackhole.consume(stringParser.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void integerString(final Blackhole blackhole) {
+        for (String line : numberLines) {
+            blackhole.consume(integerParser.parseInt(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void integerBytes(final Blackhole blackhole) {
+        for (ByteLine line : numberBytes) {
+            blackhole.consume(integerParser.parseInt(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void longString(final Blackhole blackhole) {
+        for (String line : numberLines) {
+            blackhole.consume(longParser.parseLong(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void longBytes(final Blackhole blackhole) {
+        for (ByteLine line : numberBytes) {
+            blackhole.consume(longParser.parseLong(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void pairString(final Blackhole blackhole) throws Exception {
+        for (String line : pairLines) {
+            blackhole.consume(pairParser.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void pairBytes(final Blackhole blackhole) throws Exception {
+        for (ByteLine line : pairBytes) {
+            blackhole.consume(pairParser.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void pairCsvString(final Blackhole blackhole) throws Exception {
+        for (String line : pairCsvLines) {
+            blackhole.consume(pairCsvParser.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void pairCsvBytes(final Blackhole blackhole) throws Exception {
+        for (ByteLine line : pairCsvBytes) {
+            blackhole.consume(pairCsvParser.parseLine(line));
+        }
+    }
+
+    /**
+     * Two columns out of forty, the case runner.parser.columns is meant for.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void delimitedBytes(final Blackhole blackhole) throws Exception {
+        for (ByteLine line : wideCsvBytes) {
+            blackhole.consume(delimitedParser.parseLine(line));
+        }
+    }
+
+    private static ByteLine[] toByteLines(final String[] lines) {
+        final ByteLine[] byteLines = new ByteLine[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            byteLines[i] = ByteLine.of(lines[i]);
+        }
+        return byteLines;
+    }
+}
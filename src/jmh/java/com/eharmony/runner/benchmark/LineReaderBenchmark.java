@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import com.eharmony.runner.input.ByteLineReader;
+import com.eharmony.runner.input.FileSplit;
+import com.eharmony.runner.input.IntegerLineParser;
+import com.eharmony.runner.input.LineReader;
+import com.eharmony.runner.input.SplitLineReader;
+import com.eharmony.runner.input.StringLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read every line of a file of numbers with each reader, and to read and parse it into int batches the way
+ * an IntTask gets it. The file is written once per fork and is usually in the page cache, so this measures the
+ * readers rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineReaderBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000000"})
+    public int lines;
+
+    private File inputFile;
+
+    @Setup
+    public void createInput() throws Exception {
+        inputFile = BenchmarkFiles.createNumberFile(lines);
+    }
+
+    @TearDown
+    public void deleteInput() {
+        inputFile.delete();
+    }
+
+    @Benchmark
+    public long lineReader() throws Exception {
+        long count = 0;
+        try (LineReader<String> reader = new LineReader<>(inputFile, new StringLineParser())) {
+            while (reader.readNextLine() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long byteLineReader() throws Exception {
+        long count = 0;
+        try (ByteLineReader<String> reader = new ByteLineReader<>(inputFile, new StringLineParser(), 0,
+                Long.MAX_VALUE)) {
+            while (reader.nextLine() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long splitLineReader() throws Exception {
+        long count = 0;
+        try (SplitLineReader<String> reader = new SplitLineReader<>(new FileSplit(inputFile, 0, inputFile.length()),
+                new StringLineParser(), 0, Long.MAX_VALUE)) {
+            while (reader.nextLine() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long byteLineReaderInts() throws Exception {
+        final IntegerLineParser parser = new IntegerLineParser();
+        final int[] values = new int[BATCH_SIZE];
+        long sum = 0;
+        try (ByteLineReader<Integer> reader = new ByteLineReader<>(inputFile, parser, 0, Long.MAX_VALUE)) {
+            int length;
+            while ((length = reader.readInts(parser, values, BATCH_SIZE)) > 0) {
+                for (int i = 0; i < length; i++) {
+                    sum += values[i];
+                }
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.benchmark;
+
+import com.eharmony.runner.input.IntegerLineParser;
+import com.eharmony.runner.task.DefaultRunnerContext;
+import com.eharmony.runner.task.IntTask;
+import com.eharmony.runner.task.Task;
+import com.eharmony.runner.task.TaskRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link TaskRunner#executeTask} to run a task that does nothing over a synthetic file, which is the
+ * runner's own overhead: reading, parsing, batching, dispatch and collecting results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TaskRunnerBenchmark {
+    @Param({"1000000"})
+    public int lines;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    /**
+     * boxed hands the task a Collection of Integers, primitive an int array through IntTask.
+     */
+    @Param({"boxed", "primitive"})
+    public String task;
+
+    @Param({"false", "true"})
+    public boolean pipeline;
+
+    private File inputFile;
+    private TaskRunner<Integer, DefaultRunnerContext> runner;
+
+    @Setup
+    public void createRunner() throws Exception {
+        inputFile = BenchmarkFiles.createNumberFile(lines);
+        runner = new TaskRunner<>(threads, batchSize);
+        final Properties properties = new Properties();
+        properties.setProperty(TaskRunner.RUNNER_PIPELINE_ENABLED, Boolean.toString(pipeline));
+        runner.configure(properties);
+    }
+
+    @TearDown
+    public void shutdownRunner() {
+        runner.shutdown();
+        inputFile.delete();
+    }
+
+    @Benchmark
+    public void executeTask() {
+        runner.executeTask(inputFile, new IntegerLineParser(),
+                "primitive".equals(task) ? new NoOpIntTask() : new NoOpTask(), new DefaultRunnerContext());
+    }
+
+    public static class NoOpTask implements Task<Integer, DefaultRunnerContext> {
+        @Override
+        public boolean executeTask(final Collection<Integer> input, final DefaultRunnerContext runnerContext) {
+            return true;
+        }
+    }
+
+    public static class NoOpIntTask implements IntTask<DefaultRunnerContext> {
+        @Override
+        public boolean executeIntTask(final int[] values, final int length, final DefaultRunnerContext runnerContext) {
+            return true;
+        }
+    }
+}
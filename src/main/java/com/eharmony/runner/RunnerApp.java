@@ -16,8 +16,17 @@
 
 package com.eharmony.runner;
 
+import com.eharmony.runner.file.TaskFileWriter;
+import com.eharmony.runner.input.BinaryInputFile;
+import com.eharmony.runner.input.DelimitedLineParser;
+import com.eharmony.runner.input.GzipInput;
+import com.eharmony.runner.input.InputFiles;
+import com.eharmony.runner.input.LineIndex;
 import com.eharmony.runner.input.LineParser;
 import com.eharmony.runner.output.CsvStatisticsOutputWriter;
+import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.KeyedCounters;
+import com.eharmony.runner.task.Checkpoint;
 import com.eharmony.runner.task.Task;
 import com.eharmony.runner.task.TaskRunner;
 import com.google.common.collect.Sets;
@@ -33,7 +42,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Scanner;
@@ -50,6 +62,7 @@ public class RunnerApp {
     private static final String RUNNER_INPUT_SKIP_SIZE = "runner.input.skip.size";
     private static final String RUNNER_INPUT_PROCESS_SIZE = "runner.input.process.size";
     private static final String DEFAULT_CONFIG_PATH = "config/runner.properties";
+    private static final String RERUN_FILE_SUFFIX = ".rerun";
     private static final Set<String> REQUIRED_PROPERTIES =
             Sets.newHashSet(RUNNER_INPUT_FILE,
                     RUNNER_PARSER_CLASS,
@@ -64,6 +77,15 @@ public class RunnerApp {
         OPTIONS.addOption("p", "prompt", true, "Prompt to confirm task settings before executing task. " +
                 "Default is true");
         OPTIONS.addOption("csv", false, "Outputs the counters and aggregators as csv files. Default is to only log.");
+        OPTIONS.addOption("index", "build-index", false, "Builds the line index for runner.input.file, so later " +
+                "runs can seek to runner.input.skip.size directly, and exits.");
+        OPTIONS.addOption("compile", "compile-input", true, "Parses runner.input.file with runner.parser.class and " +
+                "writes the records to the given file in a binary format, which later runs read without parsing, " +
+                "and exits.");
+        OPTIONS.addOption("r", "resume", false, "Resumes the task from the checkpoint in runner.checkpoint.file, " +
+                "restoring its counters and aggregators.");
+        OPTIONS.addOption("rejects", "rerun-rejects", false, "Runs the task again over the lines in " +
+                "runner.reject.file only. Lines that fail again are written to a new reject file.");
         OPTIONS.addOption("h", "help", false, "Print this message.");
     }
 
@@ -75,7 +97,20 @@ public class RunnerApp {
             runnerProperties.load(new FileInputStream(options.configPath));
             runnerProperties.putAll(System.getProperties());
 
+            if (options.buildIndex) {
+                buildLineIndex(runnerProperties);
+                return;
+            }
+            if (options.compileTarget != null) {
+                compileInput(runnerProperties, new File(options.compileTarget));
+                return;
+            }
+
             validateProperties(REQUIRED_PROPERTIES, runnerProperties);
+            Aggregators.configure(runnerProperties);
+            KeyedCounters.configure(runnerProperties);
+            TaskFileWriter.configure(runnerProperties);
+            GzipInput.configure(runnerProperties);
 
             Class runnerTask = Class.forName(runnerProperties.getProperty(RUNNER_TASK_CLASS));
             Task task = (Task) runnerTask.newInstance();
@@ -87,18 +122,42 @@ public class RunnerApp {
 
             context.init(runnerProperties);
 
-            Class runnerParser = Class.forName(runnerProperties.getProperty(RUNNER_PARSER_CLASS));
-            LineParser parser = (LineParser) runnerParser.newInstance();
+            LineParser parser = createParser(runnerProperties);
 
-            File inputFile = new File(runnerProperties.getProperty(RUNNER_INPUT_FILE));
+            List<File> inputFiles = InputFiles.resolve(runnerProperties.getProperty(RUNNER_INPUT_FILE));
+            File rerunFile = null;
 
             TaskRunner runner;
             final int numThreads = Integer.parseInt(runnerProperties.getProperty(RUNNER_TASK_THREADS));
             final int batchSize = Integer.parseInt(runnerProperties.getProperty(RUNNER_TASK_BATCH_SIZE));
 
-            int skipSize = Integer.parseInt(runnerProperties.getProperty(RUNNER_INPUT_SKIP_SIZE,"0"));
-            int inputProcessSize = Integer.parseInt(
-                    runnerProperties.getProperty(RUNNER_INPUT_PROCESS_SIZE,Integer.toString(Integer.MAX_VALUE)));
+            long skipSize = Long.parseLong(runnerProperties.getProperty(RUNNER_INPUT_SKIP_SIZE,"0"));
+            long inputProcessSize = Long.parseLong(
+                    runnerProperties.getProperty(RUNNER_INPUT_PROCESS_SIZE,Long.toString(Long.MAX_VALUE)));
+
+            if (options.rerunRejects) {
+                if (options.resume) {
+                    throw new IllegalArgumentException("--rerun-rejects cannot be combined with --resume");
+                }
+                rerunFile = getRerunFile(runnerProperties);
+                inputFiles = Collections.singletonList(rerunFile);
+                skipSize = 0;
+                inputProcessSize = Long.MAX_VALUE;
+            }
+
+            if (options.resume) {
+                Checkpoint checkpoint = Checkpoint.restore(new File(runnerProperties.getProperty(
+                        TaskRunner.RUNNER_CHECKPOINT_FILE, TaskRunner.DEFAULT_CHECKPOINT_FILE)));
+                final String input = InputFiles.describe(inputFiles);
+                if (!checkpoint.getInputFile().equals(input)) {
+                    throw new IllegalArgumentException("Checkpoint was written for input file "
+                            + checkpoint.getInputFile() + ", not " + input);
+                }
+                skipSize = checkpoint.getNextRecord();
+                inputProcessSize = checkpoint.getRemainingRecords();
+                TaskFileWriter.setResuming(true);
+                LOG.info("Resuming from record {} of {}", skipSize, input);
+            }
 
             if (options.outputCsv) {
                 runner = new TaskRunner(numThreads, batchSize, Optional.of(new CsvStatisticsOutputWriter()),
@@ -106,14 +165,28 @@ public class RunnerApp {
             } else {
                 runner = new TaskRunner(numThreads, batchSize,Optional.empty(),skipSize,inputProcessSize);
             }
+            runner.configure(runnerProperties);
 
             Set<String> allProperties = new HashSet<>(REQUIRED_PROPERTIES);
             allProperties.addAll(context.getRequiredPropertyNames());
             if (!options.promptUser || promptUser(runnerProperties, allProperties)) {
+                if (rerunFile != null) {
+                    moveRejectsToRerunFile(runnerProperties, rerunFile);
+                    LOG.info("Rerunning rejected lines from {}", rerunFile);
+                } else if (!options.resume) {
+                    removePreviousRejects(runnerProperties);
+                }
                 System.out.println("Starting Process with given parameters...");
                 final long startTime = System.nanoTime();
-                runner.executeTask(inputFile, parser, task, context);
+                final boolean finished = runner.executeTask(inputFiles, parser, task, context);
                 final long endTime = System.nanoTime();
+                if (rerunFile != null) {
+                    if (!finished) {
+                        LOG.warn("Rerun did not finish, kept {}", rerunFile);
+                    } else if (rerunFile.delete()) {
+                        LOG.info("Rerun complete, removed {}", rerunFile);
+                    }
+                }
                 printExecutionTime(startTime, endTime);
             } else {
                 LOG.info("User exited");
@@ -149,7 +222,8 @@ public class RunnerApp {
         if (!line.hasOption("h")) {
             boolean promptUser = Boolean.parseBoolean(line.getOptionValue("p", "true"));
             String configPath = line.getOptionValue("c", DEFAULT_CONFIG_PATH);
-            return new RunnerOptions(promptUser, configPath, line.hasOption("csv"));
+            return new RunnerOptions(promptUser, configPath, line.hasOption("csv"), line.hasOption("index"),
+                    line.hasOption("r"), line.hasOption("rejects"), line.getOptionValue("compile"));
         } else {
             HelpFormatter formatter = new HelpFormatter();
             formatter.printHelp( "mvn exec:java", OPTIONS);
@@ -162,16 +236,107 @@ public class RunnerApp {
         boolean promptUser;
         String configPath;
         boolean outputCsv;
+        boolean buildIndex;
+        boolean resume;
+        boolean rerunRejects;
+        String compileTarget;
 
         RunnerOptions(final boolean promptUser,
                       final String configPath,
-                      final boolean outputCsv) {
+                      final boolean outputCsv,
+                      final boolean buildIndex,
+                      final boolean resume,
+                      final boolean rerunRejects,
+                      final String compileTarget) {
             this.promptUser = promptUser;
             this.configPath = configPath;
             this.outputCsv = outputCsv;
+            this.buildIndex = buildIndex;
+            this.resume = resume;
+            this.rerunRejects = rerunRejects;
+            this.compileTarget = compileTarget;
         }
     }
 
+    /**
+     * Checks that there are rejected lines to rerun and returns the file they are moved to before the rerun starts.
+     */
+    private static File getRerunFile(final Properties runnerProperties) {
+        validateProperties(Sets.newHashSet(TaskRunner.RUNNER_REJECT_FILE), runnerProperties);
+
+        final File rejectFile = new File(runnerProperties.getProperty(TaskRunner.RUNNER_REJECT_FILE));
+        final File rerunFile = new File(rejectFile.getPath() + RERUN_FILE_SUFFIX);
+        if (rerunFile.exists()) {
+            throw new IllegalArgumentException(rerunFile + " is left over from an unfinished rerun, "
+                    + "merge it back into " + rejectFile + " or remove it first");
+        }
+        if (!rejectFile.isFile()) {
+            throw new IllegalArgumentException("No rejected lines found at " + rejectFile);
+        }
+        return rerunFile;
+    }
+
+    /**
+     * Moves the reject file aside to use it as the input, so lines that fail again can be written to a fresh reject
+     * file. The moved file is removed once the rerun finishes, and kept if it fails.
+     */
+    private static void moveRejectsToRerunFile(final Properties runnerProperties, final File rerunFile)
+            throws IOException {
+        final File rejectFile = new File(runnerProperties.getProperty(TaskRunner.RUNNER_REJECT_FILE));
+        Files.move(rejectFile.toPath(), rerunFile.toPath());
+    }
+
+    private static void removePreviousRejects(final Properties runnerProperties) {
+        final String rejectFileName = runnerProperties.getProperty(TaskRunner.RUNNER_REJECT_FILE);
+        if (rejectFileName != null && new File(rejectFileName).delete()) {
+            LOG.warn("Removed reject file {} left by a previous run", rejectFileName);
+        }
+    }
+
+    private static void buildLineIndex(final Properties runnerProperties) throws IOException {
+        validateProperties(Sets.newHashSet(RUNNER_INPUT_FILE), runnerProperties);
+
+        final File inputFile = new File(runnerProperties.getProperty(RUNNER_INPUT_FILE));
+        if (GzipInput.isGzip(inputFile)) {
+            throw new IllegalArgumentException(inputFile + " is gzip compressed and cannot be indexed");
+        }
+        final int interval = Integer.parseInt(runnerProperties.getProperty(TaskRunner.RUNNER_INPUT_INDEX_INTERVAL,
+                Integer.toString(LineIndex.DEFAULT_INTERVAL)));
+        final long startTime = System.nanoTime();
+
+        LineIndex lineIndex = LineIndex.build(inputFile, interval);
+        lineIndex.write(inputFile);
+        LOG.info("Indexed {} lines of {} into {}", lineIndex.getLineCount(), inputFile,
+                LineIndex.getIndexFile(inputFile));
+        printExecutionTime(startTime, System.nanoTime());
+    }
+
+    /**
+     * Creates the runner.parser.class parser, configuring it from the runner properties when it is a
+     * DelimitedLineParser.
+     */
+    private static LineParser<?> createParser(final Properties runnerProperties) throws Exception {
+        final LineParser<?> parser = (LineParser<?>) Class.forName(runnerProperties.getProperty(RUNNER_PARSER_CLASS))
+                .newInstance();
+        if (parser instanceof DelimitedLineParser) {
+            ((DelimitedLineParser) parser).configure(runnerProperties);
+        }
+        return parser;
+    }
+
+    private static void compileInput(final Properties runnerProperties, final File outputFile) throws Exception {
+        validateProperties(Sets.newHashSet(RUNNER_INPUT_FILE, RUNNER_PARSER_CLASS), runnerProperties);
+
+        final File inputFile = new File(runnerProperties.getProperty(RUNNER_INPUT_FILE));
+        final LineParser<?> parser = createParser(runnerProperties);
+        final long startTime = System.nanoTime();
+
+        BinaryInputFile compiledFile = BinaryInputFile.compile(inputFile, parser, outputFile);
+        LOG.info("Compiled {} {} records of {} into {}", compiledFile.getRecordCount(), compiledFile.getFormat(),
+                inputFile, outputFile);
+        printExecutionTime(startTime, System.nanoTime());
+    }
+
     private static boolean promptUser(final Properties runnerProperties,
                                       final Set<String> inputProperties) {
         System.out.println("====== Task Properties ======");
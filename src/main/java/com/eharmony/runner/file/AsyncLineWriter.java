@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.file;
+
+import com.eharmony.runner.statistics.Counters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes lines to a file from a single background thread. Callers only place lines into a ring buffer, and the writer
+ * thread copies them into a large byte buffer that is written through a {@link FileChannel} whenever it fills up or the
+ * ring buffer runs dry.
+ * <p>
+ * Callers register before they check whether the writer is closed, and the writer thread only stops once the writer
+ * is closed, no caller is still registered and the ring buffer is empty. A line whose write returned is therefore
+ * always written, even when the writer is closed at the same time.
+ */
+class AsyncLineWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLineWriter.class);
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Path path;
+    private final MpscRingBuffer<String> lines;
+    private final boolean dropOnOverflow;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+    private final Thread writerThread;
+    private final AtomicInteger activeWriters = new AtomicInteger();
+    private final LongAdder queuedLines = new LongAdder();
+    private final LongAdder abandonedLines = new LongAdder();
+    private volatile long writtenLines;
+    private volatile boolean closed;
+    private volatile IOException writeFailure;
+
+    AsyncLineWriter(final Path path, final boolean append, final int bufferSize, final boolean dropOnOverflow)
+            throws IOException {
+        this.path = path;
+        this.lines = new MpscRingBuffer<>(bufferSize);
+        this.dropOnOverflow = dropOnOverflow;
+        this.channel = append
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.writerThread = new Thread(this::drain, "task-file-writer-" + path.getFileName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    void write(final String line) throws IOException {
+        activeWriters.incrementAndGet();
+        try {
+            if (writeFailure != null) {
+                throw new IOException("Unable to write to file " + path, writeFailure);
+            }
+            if (closed) {
+                throw new IOException("File " + path + " is already closed");
+            }
+
+            // Counted before the offer, so the writer thread can never have written more lines than were counted
+            queuedLines.increment();
+            boolean queued = false;
+            try {
+                while (!(queued = lines.offer(line))) {
+                    if (dropOnOverflow) {
+                        Counters.incrementCounter(TaskFileWriter.DROPPED_LINES_COUNTER);
+                        return;
+                    }
+                    if (closed) {
+                        throw new IOException("File " + path + " was closed while waiting to write");
+                    }
+                    LockSupport.parkNanos(FULL_WAIT_NANOS);
+                }
+            } finally {
+                if (!queued) {
+                    abandonedLines.increment();
+                }
+            }
+        } finally {
+            activeWriters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until every line written so far is on disk. Lines written while waiting may or may not be included.
+     */
+    void flush() throws IOException {
+        final long target = queuedLines.sum();
+        while (writtenLines + abandonedLines.sum() < target) {
+            if (writeFailure != null) {
+                throw new IOException("Unable to write to file " + path, writeFailure);
+            }
+            if (!writerThread.isAlive()) {
+                throw new IOException("File " + path + " is already closed");
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(IDLE_WAIT_NANOS);
+        }
+    }
+
+    /**
+     * Waits until every line written so far is on disk, then closes the file.
+     */
+    void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing file " + path, ex);
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                // Read the flag before draining, so lines written before close are always picked up
+                final boolean closing = closed;
+                String line;
+                long drainedLines = 0;
+                while ((line = lines.poll()) != null) {
+                    append(line.getBytes(StandardCharsets.UTF_8));
+                    drainedLines++;
+                }
+                writeBuffered();
+                writtenLines += drainedLines;
+
+                // Once closed, callers that are not registered yet can no longer queue lines
+                if (closing && activeWriters.get() == 0 && lines.isEmpty()) {
+                    return;
+                }
+                if (drainedLines == 0) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.error("Unable to write to file " + path, ex);
+            writeFailure = ex;
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOG.error("Failed to close file " + path, ex);
+            }
+        }
+    }
+
+    private void append(final byte[] bytes) throws IOException {
+        if (bytes.length > writeBuffer.remaining()) {
+            writeBuffered();
+        }
+        if (bytes.length > writeBuffer.capacity()) {
+            final ByteBuffer largeLine = ByteBuffer.wrap(bytes);
+            while (largeLine.hasRemaining()) {
+                channel.write(largeLine);
+            }
+            return;
+        }
+        writeBuffer.put(bytes);
+    }
+
+    private void writeBuffered() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.file;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Appends the raw input lines of batches that failed, so they can be run again on their own later. Each batch is
+ * written and flushed as a whole, so the lines of concurrent batches never interleave and a crash loses at most the
+ * batch being written.
+ */
+public class RejectFileWriter implements Closeable {
+    private final File rejectFile;
+    private BufferedWriter writer;
+
+    public RejectFileWriter(final File rejectFile) {
+        this.rejectFile = rejectFile;
+    }
+
+    public synchronized void writeLines(final Collection<String> lines) throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejectFile, true),
+                    StandardCharsets.UTF_8));
+        }
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    public File getRejectFile() {
+        return rejectFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
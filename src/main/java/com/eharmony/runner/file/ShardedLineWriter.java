@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Splits the writes to a file over a fixed number of part slots, picked by a hash of the thread id, so threads rarely
+ * wait on each other and the number of open parts stays bounded however many threads write. A slot moves on to a new
+ * part once its current part reaches the roll size. Part files are named after the file with a sequence number,
+ * eg. users.txt.part-00003, and can be concatenated back into the file when it is closed. Compressed parts are separate
+ * gzip members, so their concatenation is a valid gzip file as well.
+ * <p>
+ * A part is written under an {@code .inprogress} name and only renamed once it is closed, so a part that a stopped
+ * run left open is never mistaken for a complete one. When appending or resuming, new parts are numbered after the
+ * existing ones and leftover in progress parts are removed.
+ */
+class ShardedLineWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedLineWriter.class);
+    private static final String PART_SEPARATOR = ".part-";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String IN_PROGRESS_SUFFIX = ".inprogress";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SLOT_COUNT = slotCount(Runtime.getRuntime().availableProcessors());
+
+    private final File file;
+    private final boolean append;
+    private final boolean resume;
+    private final long rollSize;
+    private final boolean compress;
+    private final boolean merge;
+    private final Part[] slotParts = new Part[SLOT_COUNT];
+    private final Object[] slotLocks = new Object[SLOT_COUNT];
+    private int nextPartNumber = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param append keep the parts, and the merged file, of earlier runs and add to them
+     * @param resume keep the complete parts of the stopped run being resumed
+     * @param rollSize number of characters after which a part is rolled over, or 0 to never roll
+     */
+    ShardedLineWriter(final File file, final boolean append, final boolean resume, final long rollSize,
+                      final boolean compress, final boolean merge) {
+        this.file = file;
+        this.append = append;
+        this.resume = resume;
+        this.rollSize = rollSize;
+        this.compress = compress;
+        this.merge = merge;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slotLocks[i] = new Object();
+        }
+    }
+
+    void write(final String line) throws IOException {
+        if (closed) {
+            throw new IOException("File " + file + " is already closed");
+        }
+
+        final int slot = slot(Thread.currentThread().getId());
+        synchronized (slotLocks[slot]) {
+            // Checked again under the lock, as close may have closed this slot since the check above
+            if (closed) {
+                throw new IOException("File " + file + " is already closed");
+            }
+            Part part = slotParts[slot];
+            if (part == null || part.isFull()) {
+                if (part != null) {
+                    part.close();
+                }
+                part = openPart();
+                slotParts[slot] = part;
+            }
+            part.write(line);
+        }
+    }
+
+    /**
+     * Closes the current part of every slot, so that everything written so far is in complete part files. Slots start
+     * new parts on their next write.
+     */
+    void flush() throws IOException {
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            synchronized (slotLocks[slot]) {
+                if (slotParts[slot] != null) {
+                    slotParts[slot].close();
+                    slotParts[slot] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every part, then concatenates all complete parts into the file if merging is enabled. Each part is closed
+     * under its slot's lock, so a write still in progress finishes before its part is closed, and later writes fail.
+     */
+    void close() throws IOException {
+        closed = true;
+        IOException closeFailure = null;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            synchronized (slotLocks[slot]) {
+                final Part part = slotParts[slot];
+                if (part == null) {
+                    continue;
+                }
+                slotParts[slot] = null;
+                try {
+                    part.close();
+                } catch (IOException ex) {
+                    LOG.error("Failed to close file " + part.file, ex);
+                    closeFailure = ex;
+                }
+            }
+        }
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+        if (merge && hasOpenedParts()) {
+            final List<File> partFiles = listPartFiles(false);
+            if (!partFiles.isEmpty()) {
+                mergeParts(partFiles);
+            }
+        }
+    }
+
+    private synchronized Part openPart() throws IOException {
+        if (nextPartNumber < 0) {
+            nextPartNumber = append || resume ? removeInProgressParts() : deleteStaleParts();
+        }
+        return new Part(nextPartNumber++);
+    }
+
+    /**
+     * @return false for a writer that was never written to, such as one that lost the race to be registered
+     */
+    private synchronized boolean hasOpenedParts() {
+        return nextPartNumber >= 0;
+    }
+
+    /**
+     * Removes the parts of an earlier run, which would otherwise be mistaken for parts of this one.
+     *
+     * @return the number of the first part
+     */
+    private int deleteStaleParts() throws IOException {
+        for (File stalePart : listPartFiles(true)) {
+            if (!stalePart.delete()) {
+                throw new IOException("Unable to delete old part file " + stalePart);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the parts that a stopped run left in progress. Their lines were written after its last checkpoint, so a
+     * resumed run writes them again.
+     *
+     * @return the number after the highest existing part
+     */
+    private int removeInProgressParts() throws IOException {
+        int nextNumber = 0;
+        for (File part : listPartFiles(true)) {
+            if (part.getName().endsWith(IN_PROGRESS_SUFFIX)) {
+                if (!part.delete()) {
+                    throw new IOException("Unable to delete unfinished part file " + part);
+                }
+                LOG.warn("Removed unfinished part file " + part);
+            }
+            nextNumber = Math.max(nextNumber, getPartNumber(part) + 1);
+        }
+        return nextNumber;
+    }
+
+    private List<File> listPartFiles(final boolean includeInProgress) {
+        final String prefix = file.getName() + PART_SEPARATOR;
+        final File[] partFiles = getDirectory().listFiles((directory, name) -> name.startsWith(prefix)
+                && (includeInProgress || !name.endsWith(IN_PROGRESS_SUFFIX)));
+        if (partFiles == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(partFiles)
+                .sorted(Comparator.comparingInt(this::getPartNumber))
+                .collect(Collectors.toList());
+    }
+
+    private int getPartNumber(final File partFile) {
+        final String name = partFile.getName();
+        int position = file.getName().length() + PART_SEPARATOR.length();
+        int number = 0;
+        while (position < name.length() && Character.isDigit(name.charAt(position))) {
+            number = number * 10 + (name.charAt(position++) - '0');
+        }
+        return number;
+    }
+
+    private void mergeParts(final List<File> partFiles) throws IOException {
+        final File mergedFile = new File(file.getPath() + (compress ? GZIP_SUFFIX : ""));
+        try (FileChannel target = append
+                ? FileChannel.open(mergedFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)
+                : FileChannel.open(mergedFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (File partFile : partFiles) {
+                try (FileChannel source = FileChannel.open(partFile.toPath(), StandardOpenOption.READ)) {
+                    long position = 0;
+                    final long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+
+        for (File partFile : partFiles) {
+            if (!partFile.delete()) {
+                LOG.warn("Unable to delete merged part file " + partFile);
+            }
+        }
+        LOG.info("Merged " + partFiles.size() + " part files into " + mergedFile);
+    }
+
+    private static int slot(final long threadId) {
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (SLOT_COUNT - 1);
+    }
+
+    /**
+     * Two slots per processor, rounded up to a power of two and capped at 64.
+     */
+    private static int slotCount(final int processors) {
+        final int slots = Math.max(2, Math.min(64, processors * 2));
+        return Integer.highestOneBit(slots - 1) << 1;
+    }
+
+    private File getDirectory() {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        return directory != null ? directory : new File(".");
+    }
+
+    /**
+     * A part file written by the threads of one slot, which hold the slot's lock while writing.
+     */
+    private final class Part {
+        private final File file;
+        private final File inProgressFile;
+        private final Writer writer;
+        private long charactersWritten;
+        private boolean partClosed;
+
+        private Part(final int number) throws IOException {
+            this.file = new File(String.format("%s%s%05d%s", ShardedLineWriter.this.file.getPath(), PART_SEPARATOR,
+                    number, compress ? GZIP_SUFFIX : ""));
+            this.inProgressFile = new File(this.file.getPath() + IN_PROGRESS_SUFFIX);
+            OutputStream output = new FileOutputStream(this.inProgressFile);
+            if (compress) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        private void write(final String line) throws IOException {
+            writer.write(line);
+            charactersWritten += line.length();
+        }
+
+        private boolean isFull() {
+            return rollSize > 0 && charactersWritten >= rollSize;
+        }
+
+        private synchronized void close() throws IOException {
+            if (!partClosed) {
+                partClosed = true;
+                writer.close();
+                Files.move(inProgressFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -23,28 +23,116 @@ import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.Flushable;
 import java.io.IOException;
+import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class TaskFileWriter implements Closeable {
+public class TaskFileWriter implements Closeable, Flushable {
+    public static final String RUNNER_FILE_WRITER_ASYNC = "runner.file.writer.async";
+    public static final String RUNNER_FILE_WRITER_BUFFER_SIZE = "runner.file.writer.buffer.size";
+    public static final String RUNNER_FILE_WRITER_OVERFLOW = "runner.file.writer.overflow";
+    public static final String RUNNER_FILE_WRITER_SHARDED = "runner.file.writer.sharded";
+    public static final String RUNNER_FILE_WRITER_ROLL_SIZE = "runner.file.writer.roll.size";
+    public static final String RUNNER_FILE_WRITER_GZIP = "runner.file.writer.gzip";
+    public static final String RUNNER_FILE_WRITER_MERGE = "runner.file.writer.merge";
+    public static final String DROPPED_LINES_COUNTER = "FILE_WRITER_DROPPED_LINES";
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final String OVERFLOW_BLOCK = "block";
+    private static final String OVERFLOW_DROP = "drop";
     private static final Logger LOG = LoggerFactory.getLogger(TaskFileWriter.class);
     private static final String FILE_FOLDER = "output-files/";
     private static final ConcurrentHashMap<String, TaskFileWriter> FILE_WRITERS = new ConcurrentHashMap<>();
+    private static volatile boolean ASYNC = false;
+    private static volatile int BUFFER_SIZE = DEFAULT_BUFFER_SIZE;
+    private static volatile boolean DROP_ON_OVERFLOW = false;
+    private static volatile boolean SHARDED = false;
+    private static volatile long ROLL_SIZE = 0;
+    private static volatile boolean GZIP = false;
+    private static volatile boolean MERGE = false;
+    private static volatile boolean RESUMING = false;
 
+    private final String key;
     private final String fileName;
     private final boolean append;
+    private final boolean async;
+    private final ShardedLineWriter shardedWriter;
+    private volatile AsyncLineWriter asyncWriter;
     private BufferedWriter writer;
 
-    private TaskFileWriter(String fileName, boolean append) throws IOException {
-        this.fileName = FILE_FOLDER + fileName;
-        this.append = append;
+    private TaskFileWriter(String key, boolean append, boolean resume, boolean sharded) throws IOException {
+        this.key = key;
+        this.fileName = FILE_FOLDER + key;
+        this.append = append || resume;
         File file = new File(this.fileName);
-        if (!file.createNewFile() && !file.canWrite()) {
-            throw new IOException("Unable to write to file " + this.fileName);
+        if (sharded) {
+            this.shardedWriter = new ShardedLineWriter(file, append, resume, ROLL_SIZE, GZIP, MERGE);
+        } else {
+            this.shardedWriter = null;
+            if (!file.createNewFile() && !file.canWrite()) {
+                throw new IOException("Unable to write to file " + this.fileName);
+            }
         }
+        this.async = ASYNC && !sharded;
     }
 
-    public synchronized void write(String line) throws IOException {
+    /**
+     * Reads how file writers created afterwards behave. With {@code runner.file.writer.async} set to true, writes are
+     * placed in a ring buffer of {@code runner.file.writer.buffer.size} lines and written to disk by a background
+     * thread. {@code runner.file.writer.overflow} decides whether writers wait for room when the buffer is full
+     * (block) or discard the line and count it (drop).
+     * <p>
+     * With {@code runner.file.writer.sharded} set to true, writes are spread over a bounded number of part files
+     * picked by thread instead, which takes precedence over the asynchronous mode. Parts roll over after
+     * {@code runner.file.writer.roll.size} characters, are compressed when {@code runner.file.writer.gzip} is true,
+     * and are concatenated into a single file on close when {@code runner.file.writer.merge} is true.
+     */
+    public static void configure(final Properties properties) {
+        ASYNC = Boolean.parseBoolean(properties.getProperty(RUNNER_FILE_WRITER_ASYNC, "false"));
+        BUFFER_SIZE = Integer.parseInt(properties.getProperty(RUNNER_FILE_WRITER_BUFFER_SIZE,
+                Integer.toString(DEFAULT_BUFFER_SIZE)));
+        if (BUFFER_SIZE <= 0) {
+            throw new IllegalArgumentException(RUNNER_FILE_WRITER_BUFFER_SIZE + " must be greater than zero");
+        }
+        final String overflow = properties.getProperty(RUNNER_FILE_WRITER_OVERFLOW, OVERFLOW_BLOCK).trim();
+        if (!OVERFLOW_BLOCK.equalsIgnoreCase(overflow) && !OVERFLOW_DROP.equalsIgnoreCase(overflow)) {
+            throw new IllegalArgumentException(RUNNER_FILE_WRITER_OVERFLOW + " must be block or drop");
+        }
+        DROP_ON_OVERFLOW = OVERFLOW_DROP.equalsIgnoreCase(overflow);
+
+        SHARDED = Boolean.parseBoolean(properties.getProperty(RUNNER_FILE_WRITER_SHARDED, "false"));
+        ROLL_SIZE = Long.parseLong(properties.getProperty(RUNNER_FILE_WRITER_ROLL_SIZE, "0"));
+        if (ROLL_SIZE < 0) {
+            throw new IllegalArgumentException(RUNNER_FILE_WRITER_ROLL_SIZE + " cannot be negative");
+        }
+        GZIP = Boolean.parseBoolean(properties.getProperty(RUNNER_FILE_WRITER_GZIP, "false"));
+        MERGE = Boolean.parseBoolean(properties.getProperty(RUNNER_FILE_WRITER_MERGE, "false"));
+    }
+
+    /**
+     * Makes writers opened afterwards append to their files, even when asked not to, so that a resumed run keeps the
+     * output written before its checkpoint. Lines that the stopped run wrote after its checkpoint are written again,
+     * as their records are processed again, except for sharded writers, which drop the parts still in progress.
+     */
+    public static void setResuming(final boolean resuming) {
+        RESUMING = resuming;
+    }
+
+    public void write(String line) throws IOException {
+        if (shardedWriter != null) {
+            shardedWriter.write(line);
+        } else if (async) {
+            AsyncLineWriter lineWriter = asyncWriter;
+            if (lineWriter == null) {
+                lineWriter = initializeAsyncWriter();
+            }
+            lineWriter.write(line);
+        } else {
+            writeSynchronously(line);
+        }
+    }
+
+    private synchronized void writeSynchronously(String line) throws IOException {
         if (writer == null) {
             initializeWriter();
         }
@@ -55,36 +143,111 @@ public class TaskFileWriter implements Closeable {
         writer = new BufferedWriter(new FileWriter(fileName, append));
     }
 
+    private synchronized AsyncLineWriter initializeAsyncWriter() throws IOException {
+        if (asyncWriter == null) {
+            asyncWriter = new AsyncLineWriter(new File(fileName).toPath(), append, BUFFER_SIZE, DROP_ON_OVERFLOW);
+        }
+        return asyncWriter;
+    }
+
+    /**
+     * Writes out everything written so far without closing the file. Asynchronous writers wait until their buffered
+     * lines are on disk, and sharded writers close their current parts and start new ones on the next write.
+     */
     @Override
-    public void close() throws IOException {
+    public void flush() throws IOException {
+        if (shardedWriter != null) {
+            shardedWriter.flush();
+        } else if (asyncWriter != null) {
+            asyncWriter.flush();
+        } else {
+            flushSynchronously();
+        }
+    }
+
+    private synchronized void flushSynchronously() throws IOException {
         if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes out everything written so far and closes the file. Later calls to {@link #getFileWriter(String)} with the
+     * same name open the file again.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        FILE_WRITERS.remove(key, this);
+        if (shardedWriter != null) {
+            shardedWriter.close();
+        } else if (asyncWriter != null) {
+            asyncWriter.close();
+        } else if (writer != null) {
             writer.close();
         }
     }
+
     public static TaskFileWriter getFileWriter(String fileName, boolean append) throws IOException {
-        if (FILE_WRITERS.contains(fileName)) {
-            return FILE_WRITERS.get(fileName);
+        return getFileWriter(fileName, append, RESUMING, SHARDED);
+    }
+
+    public static TaskFileWriter getFileWriter(String fileName) throws IOException {
+        return getFileWriter(fileName, false);
+    }
+
+    /**
+     * Opens a writer that always writes a single file, even when sharding is enabled. Meant for files that are written
+     * by one thread, such as reports. The file is started afresh even when resuming.
+     */
+    public static TaskFileWriter getUnshardedFileWriter(String fileName) throws IOException {
+        return getFileWriter(fileName, false, false, false);
+    }
+
+    private static TaskFileWriter getFileWriter(String fileName, boolean append, boolean resume, boolean sharded)
+            throws IOException {
+        TaskFileWriter existingWriter = FILE_WRITERS.get(fileName);
+        if (existingWriter != null) {
+            return existingWriter;
+        }
+
+        TaskFileWriter fileWriter = new TaskFileWriter(fileName, append, resume, sharded);
+        existingWriter = FILE_WRITERS.putIfAbsent(fileName, fileWriter);
+        if (existingWriter == null) {
+            return fileWriter;
         } else {
-            TaskFileWriter fileWriter = new TaskFileWriter(fileName, append);
-            TaskFileWriter existingWriter = FILE_WRITERS.putIfAbsent(fileName, fileWriter);
-            if (existingWriter == null) {
-                return fileWriter;
-            } else {
-                try {
-                    fileWriter.close();
-                } catch (IOException e) {
-                    LOG.error("Failed to close file", e);
-                }
-                return existingWriter;
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                LOG.error("Failed to close file", e);
             }
+            return existingWriter;
         }
-
     }
 
-    public static TaskFileWriter getFileWriter(String fileName) throws IOException {
-        return getFileWriter(fileName, false);
+    /**
+     * Flushes every open writer, so that their files hold everything written so far. Used before a checkpoint.
+     *
+     * @throws IOException the last failure, after trying every writer
+     */
+    public static void flushAll() throws IOException {
+        IOException flushFailure = null;
+        for (TaskFileWriter fileWriter: FILE_WRITERS.values()) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                LOG.error("Failed to flush file " + fileWriter.fileName, e);
+                flushFailure = e;
+            }
+        }
+        if (flushFailure != null) {
+            throw flushFailure;
+        }
     }
 
+    /**
+     * Closes every open writer. Asynchronous writers only return once all of their buffered lines are on disk, and
+     * sharded writers merge their parts first if merging is enabled.
+     */
     public static void closeAll() {
         for (TaskFileWriter fileWriter: FILE_WRITERS.values()) {
             try {
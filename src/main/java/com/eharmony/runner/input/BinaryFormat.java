@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The fixed width record layouts of a {@link BinaryInputFile}. Values are stored little endian.
+ */
+public enum BinaryFormat {
+    INT32(4) {
+        @Override
+        Object read(final ByteBuffer buffer, final int offset) {
+            return buffer.getInt(offset);
+        }
+
+        @Override
+        void write(final ByteBuffer buffer, final Object record) {
+            buffer.putInt((Integer) record);
+        }
+    },
+    INT64(8) {
+        @Override
+        Object read(final ByteBuffer buffer, final int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        void write(final ByteBuffer buffer, final Object record) {
+            buffer.putLong((Long) record);
+        }
+    },
+    INT32_PAIR(8) {
+        @Override
+        Object read(final ByteBuffer buffer, final int offset) {
+            return new Pair<>(buffer.getInt(offset), buffer.getInt(offset + 4));
+        }
+
+        @Override
+        void write(final ByteBuffer buffer, final Object record) {
+            final Pair<?, ?> pair = (Pair<?, ?>) record;
+            buffer.putInt((Integer) pair.getKey());
+            buffer.putInt((Integer) pair.getValue());
+        }
+
+        @Override
+        String toLine(final Object record, final String separator) {
+            final Pair<?, ?> pair = (Pair<?, ?>) record;
+            return pair.getKey() + separator + pair.getValue();
+        }
+    };
+
+    private final int recordSize;
+
+    BinaryFormat(final int recordSize) {
+        this.recordSize = recordSize;
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * @return the format that stores records like this one
+     * @throws IllegalArgumentException if records of this type have no binary format
+     */
+    public static BinaryFormat forRecord(final Object record) {
+        if (record instanceof Integer) {
+            return INT32;
+        } else if (record instanceof Long) {
+            return INT64;
+        } else if (record instanceof Pair && ((Pair<?, ?>) record).getKey() instanceof Integer
+                && ((Pair<?, ?>) record).getValue() instanceof Integer) {
+            return INT32_PAIR;
+        }
+        throw new IllegalArgumentException("Records of type " + (record == null ? null : record.getClass().getName())
+                + " have no binary format");
+    }
+
+    /**
+     * @return true when the record can be written in this format
+     */
+    boolean accepts(final Object record) {
+        try {
+            return forRecord(record) == this;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    abstract Object read(ByteBuffer buffer, int offset);
+
+    abstract void write(ByteBuffer buffer, Object record);
+
+    /**
+     * @return the record as a line of text, in the form it was compiled from
+     */
+    String toLine(final Object record, final String separator) {
+        return record.toString();
+    }
+}
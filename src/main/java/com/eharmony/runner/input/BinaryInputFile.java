@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An input file compiled ahead of time into fixed width binary records, so runs over it neither read lines nor parse
+ * text. Record N starts at a known offset, which makes skipping records free.
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE} byte header: the magic bytes PTRB, the format version, the
+ * {@link BinaryFormat}, the separator between the values of a pair as it appeared in the text input, and the number
+ * of records. The records follow directly after it.
+ */
+public final class BinaryInputFile {
+    public static final int HEADER_SIZE = 64;
+    private static final byte[] MAGIC = {'P', 'T', 'R', 'B'};
+    private static final byte VERSION = 1;
+    private static final int FORMAT_OFFSET = 5;
+    private static final int SEPARATOR_OFFSET = 6;
+    private static final int MAX_SEPARATOR_LENGTH = 16;
+    private static final int RECORD_COUNT_OFFSET = 24;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final String DEFAULT_SEPARATOR = "\t";
+    private static final Pattern PAIR_SEPARATOR = Pattern.compile("^\\s*[-+]?\\d+(.+?)[-+]?\\d+\\s*$");
+
+    private final File file;
+    private final BinaryFormat format;
+    private final String separator;
+    private final long recordCount;
+
+    private BinaryInputFile(final File file, final BinaryFormat format, final String separator,
+                            final long recordCount) {
+        this.file = file;
+        this.format = format;
+        this.separator = separator;
+        this.recordCount = recordCount;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public BinaryFormat getFormat() {
+        return format;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the record as the line of text it was compiled from
+     */
+    public String toLine(final Object record) {
+        return format.toLine(record, separator);
+    }
+
+    /**
+     * @return true when the file starts with the header of a compiled input file of this version, and its size
+     * matches the number and format of the records in the header. Text files that happen to start with the magic
+     * bytes are read as text.
+     */
+    public static boolean isBinary(final File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, header) || !hasMagic(header) || header.get(MAGIC.length) != VERSION) {
+                return false;
+            }
+
+            final int formatIndex = header.get(FORMAT_OFFSET);
+            if (formatIndex < 0 || formatIndex >= BinaryFormat.values().length
+                    || header.get(SEPARATOR_OFFSET) < 0 || header.get(SEPARATOR_OFFSET) > MAX_SEPARATOR_LENGTH) {
+                return false;
+            }
+            final long recordSize = BinaryFormat.values()[formatIndex].getRecordSize();
+            final long recordCount = header.getLong(RECORD_COUNT_OFFSET);
+            final long dataSize = channel.size() - HEADER_SIZE;
+            return recordCount >= 0 && recordCount <= dataSize / recordSize && recordCount * recordSize == dataSize;
+        }
+    }
+
+    public static BinaryInputFile open(final File file) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (!readFully(channel, header) || !hasMagic(header)) {
+                throw new IOException(file + " is not a compiled input file");
+            }
+            if (header.get(MAGIC.length) != VERSION) {
+                throw new IOException(file + " was compiled by an unsupported version");
+            }
+
+            final BinaryFormat format = BinaryFormat.values()[header.get(FORMAT_OFFSET)];
+            final byte[] separator = new byte[header.get(SEPARATOR_OFFSET)];
+            for (int i = 0; i < separator.length; i++) {
+                separator[i] = header.get(SEPARATOR_OFFSET + 1 + i);
+            }
+            final long recordCount = header.getLong(RECORD_COUNT_OFFSET);
+            if (channel.size() < HEADER_SIZE + recordCount * format.getRecordSize()) {
+                throw new IOException(file + " is truncated, it should hold " + recordCount + " records");
+            }
+            return new BinaryInputFile(file, format, new String(separator, StandardCharsets.UTF_8), recordCount);
+        }
+    }
+
+    /**
+     * Parses every line of the text input and writes the records to a compiled input file. The format follows from
+     * the type of the parsed records, which must all be of the same type. The input is read like any other run's, so
+     * it may be gzip compressed, and parsers implementing {@link ByteLineParser} parse the lines without decoding
+     * them.
+     *
+     * @return the compiled file
+     * @throws IllegalArgumentException if a line cannot be parsed or its record has no binary format
+     */
+    @SuppressWarnings("unchecked")
+    public static <I> BinaryInputFile compile(final File textFile, final LineParser<I> parser, final File outputFile)
+            throws Exception {
+        final ByteLineParser<I> byteLineParser = parser instanceof ByteLineParser ? (ByteLineParser<I>) parser : null;
+        final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        BinaryFormat format = null;
+        String separator = DEFAULT_SEPARATOR;
+        long recordCount = 0;
+
+        try (ByteLineReader<I> reader = new ByteLineReader<>(textFile, parser, 0, Long.MAX_VALUE);
+             FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+
+            ByteLine line;
+            while ((line = reader.nextLine()) != null) {
+                final I record;
+                try {
+                    record = byteLineParser != null
+                            ? byteLineParser.parseLine(line)
+                            : parser.parseLine(line.toString());
+                } catch (Exception ex) {
+                    throw new IllegalArgumentException("Line " + (recordCount + 1) + " of " + textFile
+                            + " could not be parsed: " + line, ex);
+                }
+                if (format == null) {
+                    format = BinaryFormat.forRecord(record);
+                    separator = findSeparator(line.toString());
+                } else if (!format.accepts(record)) {
+                    throw new IllegalArgumentException("Line " + (recordCount + 1) + " of " + textFile
+                            + " does not parse to a record of format " + format + ": " + line);
+                }
+
+                if (buffer.remaining() < format.getRecordSize()) {
+                    writeFully(channel, buffer);
+                }
+                format.write(buffer, record);
+                recordCount++;
+            }
+            writeFully(channel, buffer);
+
+            if (format == null) {
+                throw new IllegalArgumentException(textFile + " has no records to compile");
+            }
+            writeHeader(channel, format, separator, recordCount);
+        }
+        return new BinaryInputFile(outputFile, format, separator, recordCount);
+    }
+
+    private static boolean readFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasMagic(final ByteBuffer header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String findSeparator(final String line) {
+        final Matcher matcher = PAIR_SEPARATOR.matcher(line);
+        if (matcher.matches() && matcher.group(1).getBytes(StandardCharsets.UTF_8).length <= MAX_SEPARATOR_LENGTH) {
+            return matcher.group(1);
+        }
+        return DEFAULT_SEPARATOR;
+    }
+
+    private static void writeHeader(final FileChannel channel, final BinaryFormat format, final String separator,
+                                    final long recordCount) throws IOException {
+        final byte[] separatorBytes = separator.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.put(VERSION);
+        header.put(FORMAT_OFFSET, (byte) format.ordinal());
+        header.put(SEPARATOR_OFFSET, (byte) separatorBytes.length);
+        for (int i = 0; i < separatorBytes.length; i++) {
+            header.put(SEPARATOR_OFFSET + 1 + i, separatorBytes[i]);
+        }
+        header.putLong(RECORD_COUNT_OFFSET, recordCount);
+        header.position(HEADER_SIZE);
+        channel.position(0);
+        writeFully(channel, header);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
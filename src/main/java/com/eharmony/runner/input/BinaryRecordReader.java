@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a range of the records of a {@link BinaryInputFile} through a memory mapped window. Records are decoded
+ * straight from the mapped bytes, without any text parsing, and several readers can read different ranges of the same
+ * file concurrently.
+ * <p>
+ * The records are only handed out as they were decoded when the reader's parser reads them that way. The reader
+ * parses the text form of the file's first record when it is opened: if the parser turns it into a record of another
+ * type or value, every record goes through its text form and the parser instead, and if the parser cannot parse it at
+ * all, the reader fails to open.
+ */
+public class BinaryRecordReader<I> implements RecordReader<I> {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryRecordReader.class);
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final BinaryInputFile inputFile;
+    private final BinaryFormat format;
+    private final LineParser<I> parser;
+    private final FileChannel channel;
+    private final long endRecord;
+    private MappedByteBuffer window;
+    private long windowFirstRecord;
+    private long windowEndRecord;
+    private long nextRecord;
+    private boolean decodeRecords = true;
+    private boolean decodeNumbers = true;
+
+    /**
+     * @param parser      the parser the records would be read with from the text input
+     * @param firstRecord index of the first record to read
+     * @param recordLimit maximum number of records to read
+     * @throws IllegalArgumentException if the parser cannot parse the records of the file
+     */
+    public BinaryRecordReader(final BinaryInputFile inputFile, final LineParser<I> parser, final long firstRecord,
+                              final long recordLimit) throws IOException {
+        this.inputFile = inputFile;
+        this.format = inputFile.getFormat();
+        this.parser = parser;
+        this.channel = FileChannel.open(inputFile.getFile().toPath(), StandardOpenOption.READ);
+        this.nextRecord = Math.min(firstRecord, inputFile.getRecordCount());
+        this.endRecord = recordLimit > inputFile.getRecordCount() - nextRecord
+                ? inputFile.getRecordCount()
+                : nextRecord + recordLimit;
+        try {
+            checkParser();
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public I parseNextInputLine() throws Exception {
+        final Object record = readNextRecord();
+        if (record == null || decodeRecords) {
+            return (I) record;
+        }
+        return parser.parseLine(inputFile.toLine(record));
+    }
+
+    /**
+     * @return the next record as the line of text it was compiled from, for callers that work on raw lines
+     */
+    @Override
+    public String readNextLine() throws IOException {
+        final Object record = readNextRecord();
+        return record != null ? inputFile.toLine(record) : null;
+    }
+
+    /**
+     * Copies int32 records straight from the mapped window. Other formats go through their text form.
+     */
+    @Override
+    public int readInts(final IntLineParser parser, final int[] values, final int length) throws Exception {
+        if (format != BinaryFormat.INT32 || !decodeNumbers) {
+            return RecordReader.super.readInts(parser, values, length);
+        }
+
+        int count = 0;
+        while (count < length && nextRecord < endRecord) {
+            if (nextRecord >= windowEndRecord) {
+                mapWindow();
+            }
+            final int windowCount = (int) Math.min(length - count, windowEndRecord - nextRecord);
+            int offset = (int) ((nextRecord - windowFirstRecord) * BinaryFormat.INT32.getRecordSize());
+            for (int i = 0; i < windowCount; i++, offset += Integer.BYTES) {
+                values[count++] = window.getInt(offset);
+            }
+            nextRecord += windowCount;
+        }
+        return count;
+    }
+
+    /**
+     * Copies int64 records, and widens int32 records, straight from the mapped window. Other formats go through their
+     * text form.
+     */
+    @Override
+    public int readLongs(final LongLineParser parser, final long[] values, final int length) throws Exception {
+        if (format != BinaryFormat.INT64 && format != BinaryFormat.INT32 || !decodeNumbers) {
+            return RecordReader.super.readLongs(parser, values, length);
+        }
+
+        final boolean widen = format == BinaryFormat.INT32;
+        int count = 0;
+        while (count < length && nextRecord < endRecord) {
+            if (nextRecord >= windowEndRecord) {
+                mapWindow();
+            }
+            final int windowCount = (int) Math.min(length - count, windowEndRecord - nextRecord);
+            int offset = (int) ((nextRecord - windowFirstRecord) * format.getRecordSize());
+            for (int i = 0; i < windowCount; i++, offset += format.getRecordSize()) {
+                values[count++] = widen ? window.getInt(offset) : window.getLong(offset);
+            }
+            nextRecord += windowCount;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private Object readNextRecord() throws IOException {
+        if (nextRecord >= endRecord) {
+            return null;
+        }
+        if (nextRecord >= windowEndRecord) {
+            mapWindow();
+        }
+        final int offset = (int) ((nextRecord++ - windowFirstRecord) * format.getRecordSize());
+        return format.read(window, offset);
+    }
+
+    /**
+     * Parses the text form of the first record of the file, to tell whether the decoded records are the records the
+     * parser would have produced. The int and long fast paths only need the parser to produce the same value.
+     */
+    private void checkParser() throws IOException {
+        if (inputFile.getRecordCount() == 0) {
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(format.getRecordSize()).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, BinaryInputFile.HEADER_SIZE + buffer.position()) < 0) {
+                throw new IOException(inputFile.getFile() + " is truncated");
+            }
+        }
+        final Object record = format.read(buffer, 0);
+        final Object parsed;
+        try {
+            parsed = parser.parseLine(inputFile.toLine(record));
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(inputFile.getFile() + " holds compiled " + format + " records, which "
+                    + parser.getClass().getName() + " cannot parse; compile the input with this parser or read"
+                    + " the text input instead", ex);
+        }
+
+        decodeRecords = record.equals(parsed);
+        decodeNumbers = decodeRecords || parsed instanceof Number && record instanceof Number
+                && ((Number) parsed).longValue() == ((Number) record).longValue();
+        if (!decodeRecords) {
+            LOG.warn("{} holds compiled {} records, but {} parses them to {}, reading them through their text form",
+                    inputFile.getFile(), format, parser.getClass().getName(), parsed == null ? null : parsed.getClass().getName());
+        }
+    }
+
+    private void mapWindow() throws IOException {
+        final long recordsPerWindow = MAP_WINDOW_SIZE / format.getRecordSize();
+        windowFirstRecord = nextRecord;
+        windowEndRecord = Math.min(endRecord, windowFirstRecord + recordsPerWindow);
+        window = channel.map(FileChannel.MapMode.READ_ONLY,
+                BinaryInputFile.HEADER_SIZE + windowFirstRecord * format.getRecordSize(),
+                (windowEndRecord - windowFirstRecord) * format.getRecordSize());
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
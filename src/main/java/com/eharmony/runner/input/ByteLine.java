@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.nio.charset.Charset;
+
+/**
+ * A view of one line in a byte buffer, without the line terminator. Readers reuse a single instance for every line,
+ * so a line is only valid until the next one is read. Characters are the raw bytes, which suits the ASCII digits and
+ * delimiters parsers look for; {@link #toString()} decodes the line properly.
+ */
+public final class ByteLine implements CharSequence {
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    public ByteLine() {
+        this(new byte[0], 0, 0);
+    }
+
+    public ByteLine(final byte[] bytes, final int offset, final int length) {
+        set(bytes, offset, length);
+    }
+
+    public static ByteLine of(final String line) {
+        final byte[] bytes = line.getBytes(Charset.defaultCharset());
+        return new ByteLine(bytes, 0, bytes.length);
+    }
+
+    public ByteLine set(final byte[] lineBytes, final int lineOffset, final int lineLength) {
+        this.bytes = lineBytes;
+        this.offset = lineOffset;
+        this.length = lineLength;
+        return this;
+    }
+
+    public byte byteAt(final int index) {
+        return bytes[offset + index];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return (char) (byteAt(index) & 0xff);
+    }
+
+    @Override
+    public ByteLine subSequence(final int start, final int end) {
+        return new ByteLine(bytes, offset + start, end - start);
+    }
+
+    /**
+     * @return the index of the first occurrence of the byte at or after {@code from}, or -1 if there is none
+     */
+    public int indexOf(final byte value, final int from) {
+        for (int i = offset + from; i < offset + length; i++) {
+            if (bytes[i] == value) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first whitespace byte at or after {@code from}, or the line length if there is none
+     */
+    public int nextWhitespace(final int from) {
+        int index = from;
+        while (index < length && !isWhitespace(byteAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the first byte at or after {@code from} that is not whitespace, or the line length
+     */
+    public int skipWhitespace(final int from) {
+        int index = from;
+        while (index < length && isWhitespace(byteAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    public int parseInt() {
+        return parseInt(0, length);
+    }
+
+    /**
+     * Parses the bytes from {@code from} up to {@code to} as a decimal int, following the rules of
+     * {@link Integer#parseInt(String)}.
+     *
+     * @throws NumberFormatException if the bytes are not a valid int
+     */
+    public int parseInt(final int from, final int to) {
+        final long value = parseLong(from, to, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return (int) value;
+    }
+
+    public long parseLong() {
+        return parseLong(0, length);
+    }
+
+    /**
+     * Parses the bytes from {@code from} up to {@code to} as a decimal long, following the rules of
+     * {@link Long#parseLong(String)}.
+     *
+     * @throws NumberFormatException if the bytes are not a valid long
+     */
+    public long parseLong(final int from, final int to) {
+        return parseLong(from, to, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, Charset.defaultCharset());
+    }
+
+    /**
+     * Decodes the bytes from {@code from} up to {@code to}.
+     */
+    public String toString(final int from, final int to) {
+        return new String(bytes, offset + from, to - from, Charset.defaultCharset());
+    }
+
+    /**
+     * Accumulates negatively like {@link Long#parseLong(String)}, so the minimum value parses without overflowing.
+     */
+    private long parseLong(final int from, final int to, final long minValue, final long maxValue) {
+        if (from >= to) {
+            throw invalidNumber(from, to);
+        }
+
+        int index = from;
+        final byte first = byteAt(index);
+        final boolean negative = first == '-';
+        if (negative || first == '+') {
+            index++;
+            if (index == to) {
+                throw invalidNumber(from, to);
+            }
+        }
+
+        final long limit = negative ? minValue : -maxValue;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; index < to; index++) {
+            final int digit = byteAt(index) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw invalidNumber(from, to);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalidNumber(from, to);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private NumberFormatException invalidNumber(final int from, final int to) {
+        return new NumberFormatException("For input string: \""
+                + new String(bytes, offset + from, to - from, Charset.defaultCharset()) + "\"");
+    }
+
+    private static boolean isWhitespace(final byte value) {
+        return value == ' ' || value == '\t' || value == '\n' || value == 0x0b || value == '\f' || value == '\r';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+/**
+ * A parser that works on the bytes of a line, so readers that support it never decode the line into a String.
+ */
+public interface ByteLineParser<O> extends LineParser<O> {
+    /**
+     * @param line only valid during this call, as readers reuse it for the next line
+     */
+    O parseLine(ByteLine line) throws Exception;
+
+    @Override
+    default O parseLine(final String input) throws Exception {
+        return parseLine(ByteLine.of(input));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads lines as bytes out of a large buffer and hands each one out as a reused {@link ByteLine} view, so parsers
+ * implementing {@link ByteLineParser}, {@link IntLineParser} or {@link LongLineParser} parse records without a String
+ * or any other object being created per line. Other parsers get the decoded line as before. Lines are terminated by
+ * {@code \n}, {@code \r\n} or a lone {@code \r}, as defined by {@link LineBreaks}, and gzip compressed files
+ * are decompressed as they are read.
+ */
+public class ByteLineReader<I> implements RecordReader<I> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final LineParser<I> lineParser;
+    private final ByteLineParser<I> byteLineParser;
+    private final ByteLine line = new ByteLine();
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int start;
+    private int limit;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+    private long remainingRecords;
+
+    public ByteLineReader(final File inputFile, final LineParser<I> lineParser, final long skipSize,
+                          final long processSize) throws Exception {
+        this(GzipInput.open(requireFile(inputFile)), lineParser, processSize);
+        skipLines(skipSize);
+    }
+
+    /**
+     * Creates a reader that uses the line index to seek straight to the first record after {@code skipSize} instead
+     * of reading every skipped line.
+     */
+    public ByteLineReader(final File inputFile, final LineParser<I> lineParser, final long skipSize,
+                          final long processSize, final LineIndex lineIndex) throws Exception {
+        this(seek(requireFile(inputFile), lineIndex.findLineOffset(inputFile, skipSize)), lineParser, processSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ByteLineReader(final InputStream input, final LineParser<I> lineParser, final long processSize) {
+        this.input = input;
+        this.lineParser = lineParser;
+        this.byteLineParser = lineParser instanceof ByteLineParser ? (ByteLineParser<I>) lineParser : null;
+        this.remainingRecords = processSize;
+    }
+
+    /**
+     * @return a view of the next line that is only valid until the next read, or null when the input is exhausted
+     */
+    public ByteLine nextLine() throws IOException {
+        if (remainingRecords <= 0 || !scanLine()) {
+            return null;
+        }
+        remainingRecords--;
+        return line;
+    }
+
+    @Override
+    public I parseNextInputLine() throws Exception {
+        final ByteLine input = nextLine();
+        if (input == null) {
+            return null;
+        }
+        return byteLineParser != null ? byteLineParser.parseLine(input) : lineParser.parseLine(input.toString());
+    }
+
+    @Override
+    public String readNextLine() throws IOException {
+        final ByteLine input = nextLine();
+        return input == null ? null : input.toString();
+    }
+
+    @Override
+    public int readInts(final IntLineParser parser, final int[] values, final int length) throws Exception {
+        int count = 0;
+        ByteLine input;
+        while (count < length && (input = nextLine()) != null) {
+            values[count++] = parser.parseInt(input);
+        }
+        return count;
+    }
+
+    @Override
+    public int readLongs(final LongLineParser parser, final long[] values, final int length) throws Exception {
+        int count = 0;
+        ByteLine input;
+        while (count < length && (input = nextLine()) != null) {
+            values[count++] = parser.parseLong(input);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private void skipLines(final long lines) throws IOException {
+        for (long skipped = 0; skipped < lines && scanLine(); skipped++) {
+            // only moves past the line
+        }
+    }
+
+    /**
+     * Points {@link #line} at the next line in the buffer, refilling the buffer as often as it takes to find the end
+     * of the line.
+     *
+     * @return false when there are no more lines
+     */
+    private boolean scanLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            // A line that ended with \r may continue with the \n of a \r\n, which can be at the start of the next fill
+            if (skipLineFeed && start < limit) {
+                skipLineFeed = false;
+                if (LineBreaks.continuesLineBreak((byte) '\r', buffer[start])) {
+                    start++;
+                }
+            }
+            for (int i = start + scanned; i < limit; i++) {
+                final byte value = buffer[i];
+                if (LineBreaks.isLineBreak(value)) {
+                    line.set(buffer, start, i - start);
+                    start = i + 1;
+                    skipLineFeed = value == '\r';
+                    return true;
+                }
+            }
+            if (endOfInput) {
+                if (start == limit) {
+                    return false;
+                }
+                line.set(buffer, start, limit - start);
+                start = limit;
+                return true;
+            }
+            scanned = limit - start;
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unfinished line to the front of the buffer, growing the buffer when the line fills all of it, and
+     * reads more input behind it.
+     */
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static File requireFile(final File inputFile) throws FileNotFoundException {
+        if (inputFile == null) {
+            throw new FileNotFoundException("No input file specified");
+        }
+        return inputFile;
+    }
+
+    private static InputStream seek(final File inputFile, final long offset) throws IOException {
+        final FileInputStream inputStream = new FileInputStream(inputFile);
+        try {
+            inputStream.getChannel().position(offset);
+        } catch (IOException ex) {
+            inputStream.close();
+            throw ex;
+        }
+        return inputStream;
+    }
+}
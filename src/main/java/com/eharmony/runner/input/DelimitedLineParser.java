@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import com.eharmony.runner.statistics.Counters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Parses CSV, TSV and other delimited lines into {@link DelimitedRecord}s holding only the columns listed in
+ * {@code runner.parser.columns}. Fields are scanned straight from the line's bytes; fields that are not projected
+ * are skipped without being decoded, and scanning stops after the last projected column. Fields may be enclosed in
+ * quotes, with a doubled quote standing for a quote inside the field, but cannot span lines.
+ *
+ * <p>Lines with too few columns, unterminated quotes or values that do not match their column type are counted
+ * under {@code MALFORMED_RECORDS} and rejected with a {@link MalformedRecordException}.</p>
+ */
+public class DelimitedLineParser implements ByteLineParser<DelimitedRecord> {
+    public static final String RUNNER_PARSER_DELIMITER = "runner.parser.delimiter";
+    public static final String RUNNER_PARSER_QUOTE = "runner.parser.quote";
+    public static final String RUNNER_PARSER_COLUMNS = "runner.parser.columns";
+    public static final String MALFORMED_RECORDS_COUNTER = "MALFORMED_RECORDS";
+    private static final Logger LOG = LoggerFactory.getLogger(DelimitedLineParser.class);
+    private static final int NOT_PROJECTED = -1;
+
+    private final AtomicBoolean loggedMalformedRecord = new AtomicBoolean();
+    private byte delimiter = ',';
+    private byte quote = '"';
+    private boolean quoting = true;
+    private String quoteString = "\"";
+    private ColumnType[] types;
+    private int[] slots;
+
+    /**
+     * Reads the delimiter, the quote character and the column schema. {@code runner.parser.columns} is a comma
+     * separated list of {@code position:type} entries, with positions starting at 0 and types int, long, double or
+     * string, Eg. {@code 3:long,17:int}. Records hold the columns in the listed order.
+     */
+    public void configure(final Properties properties) {
+        delimiter = toByte(RUNNER_PARSER_DELIMITER, properties.getProperty(RUNNER_PARSER_DELIMITER, ","));
+        final String quoteProperty = properties.getProperty(RUNNER_PARSER_QUOTE, "\"");
+        quoting = !quoteProperty.isEmpty();
+        if (quoting) {
+            quote = toByte(RUNNER_PARSER_QUOTE, quoteProperty);
+            quoteString = quoteProperty;
+            if (quote == delimiter) {
+                throw new IllegalArgumentException(RUNNER_PARSER_QUOTE + " must differ from " + RUNNER_PARSER_DELIMITER);
+            }
+        }
+
+        final String columns = properties.getProperty(RUNNER_PARSER_COLUMNS);
+        if (columns == null || columns.trim().isEmpty()) {
+            throw new IllegalArgumentException(RUNNER_PARSER_COLUMNS + " is required by " + getClass().getName());
+        }
+        final String[] entries = columns.split(",");
+        final ColumnType[] columnTypes = new ColumnType[entries.length];
+        final int[] positions = new int[entries.length];
+        int lastPosition = 0;
+        for (int i = 0; i < entries.length; i++) {
+            final String[] entry = entries[i].trim().split(":");
+            try {
+                positions[i] = Integer.parseInt(entry[0].trim());
+                columnTypes[i] = ColumnType.valueOf(entry[1].trim().toUpperCase());
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid column '" + entries[i] + "' in " + RUNNER_PARSER_COLUMNS
+                        + ", expected position:type", ex);
+            }
+            if (positions[i] < 0 || entry.length > 2) {
+                throw new IllegalArgumentException("Invalid column '" + entries[i] + "' in " + RUNNER_PARSER_COLUMNS
+                        + ", expected position:type");
+            }
+            lastPosition = Math.max(lastPosition, positions[i]);
+        }
+
+        final int[] columnSlots = new int[lastPosition + 1];
+        Arrays.fill(columnSlots, NOT_PROJECTED);
+        for (int i = 0; i < positions.length; i++) {
+            if (columnSlots[positions[i]] != NOT_PROJECTED) {
+                throw new IllegalArgumentException("Column " + positions[i] + " is listed twice in "
+                        + RUNNER_PARSER_COLUMNS);
+            }
+            columnSlots[positions[i]] = i;
+        }
+        types = columnTypes;
+        slots = columnSlots;
+    }
+
+    @Override
+    public DelimitedRecord parseLine(final ByteLine line) throws MalformedRecordException {
+        if (types == null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " has not been configured");
+        }
+
+        final DelimitedRecord record = new DelimitedRecord(types);
+        final int length = line.length();
+        int position = 0;
+        for (int column = 0; column < slots.length; column++) {
+            if (position > length) {
+                throw malformed(line, "Expected at least " + slots.length + " columns but found " + column);
+            }
+
+            int start = position;
+            int end;
+            int next;
+            boolean escaped = false;
+            if (quoting && position < length && line.byteAt(position) == quote) {
+                start = position + 1;
+                end = line.indexOf(quote, start);
+                while (end >= 0 && end + 1 < length && line.byteAt(end + 1) == quote) {
+                    escaped = true;
+                    end = line.indexOf(quote, end + 2);
+                }
+                if (end < 0) {
+                    throw malformed(line, "Unterminated quote in column " + column);
+                }
+                next = end + 1;
+                if (next < length && line.byteAt(next) != delimiter) {
+                    throw malformed(line, "Unexpected character after the quoted value of column " + column);
+                }
+            } else {
+                end = line.indexOf(delimiter, position);
+                if (end < 0) {
+                    end = length;
+                }
+                next = end;
+            }
+
+            final int slot = slots[column];
+            if (slot != NOT_PROJECTED) {
+                setValue(record, slot, column, line, start, end, escaped);
+            }
+            // One past the delimiter, or past the end of the line once the last column has been read
+            position = next + 1;
+        }
+        return record;
+    }
+
+    private void setValue(final DelimitedRecord record, final int slot, final int column, final ByteLine line,
+                          final int start, final int end, final boolean escaped) throws MalformedRecordException {
+        try {
+            switch (types[slot]) {
+                case INT:
+                    record.setLong(slot, line.parseInt(start, end));
+                    break;
+                case LONG:
+                    record.setLong(slot, line.parseLong(start, end));
+                    break;
+                case DOUBLE:
+                    record.setDouble(slot, Double.parseDouble(line.toString(start, end)));
+                    break;
+                default:
+                    final String value = line.toString(start, end);
+                    record.setString(slot, escaped ? value.replace(quoteString + quoteString, quoteString) : value);
+            }
+        } catch (NumberFormatException ex) {
+            throw malformed(line, "Column " + column + " is not a valid " + types[slot].name().toLowerCase());
+        }
+    }
+
+    private MalformedRecordException malformed(final ByteLine line, final String reason) {
+        Counters.incrementCounter(MALFORMED_RECORDS_COUNTER);
+        final MalformedRecordException ex = new MalformedRecordException(reason + ": " + line);
+        if (loggedMalformedRecord.compareAndSet(false, true)) {
+            LOG.warn("Skipping malformed records, counted under {}. First: {}", MALFORMED_RECORDS_COUNTER,
+                    ex.getMessage());
+        }
+        return ex;
+    }
+
+    private static byte toByte(final String property, final String value) {
+        final String character = "tab".equalsIgnoreCase(value) ? "\t" : value;
+        if (character.length() != 1 || character.charAt(0) > 127) {
+            throw new IllegalArgumentException(property + " must be a single ASCII character");
+        }
+        return (byte) character.charAt(0);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.util.Arrays;
+
+/**
+ * The projected columns of one line parsed by {@link DelimitedLineParser}, in the order they are listed in
+ * {@code runner.parser.columns}. Numeric columns are kept as primitives, so only string columns create objects.
+ */
+public class DelimitedRecord {
+    private final ColumnType[] types;
+    private final long[] numbers;
+    private String[] strings;
+
+    DelimitedRecord(final ColumnType[] types) {
+        this.types = types;
+        this.numbers = new long[types.length];
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public ColumnType getType(final int index) {
+        return types[index];
+    }
+
+    public int getInt(final int index) {
+        return (int) getLong(index);
+    }
+
+    public long getLong(final int index) {
+        return types[index] == ColumnType.DOUBLE ? (long) getDouble(index) : numbers[index];
+    }
+
+    public double getDouble(final int index) {
+        return types[index] == ColumnType.DOUBLE ? Double.longBitsToDouble(numbers[index]) : numbers[index];
+    }
+
+    public String getString(final int index) {
+        return types[index] == ColumnType.STRING ? strings[index] : String.valueOf(get(index));
+    }
+
+    /**
+     * @return the column boxed according to its type
+     */
+    public Object get(final int index) {
+        switch (types[index]) {
+            case INT:
+                return getInt(index);
+            case LONG:
+                return getLong(index);
+            case DOUBLE:
+                return getDouble(index);
+            default:
+                return strings[index];
+        }
+    }
+
+    void setLong(final int index, final long value) {
+        numbers[index] = value;
+    }
+
+    void setDouble(final int index, final double value) {
+        numbers[index] = Double.doubleToRawLongBits(value);
+    }
+
+    void setString(final int index, final String value) {
+        if (strings == null) {
+            strings = new String[types.length];
+        }
+        strings[index] = value;
+    }
+
+    @Override
+    public String toString() {
+        final Object[] values = new Object[types.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return Arrays.toString(values);
+    }
+}
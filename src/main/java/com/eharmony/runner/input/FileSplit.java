@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A byte range of a line delimited file. Split boundaries always fall at the start of a line, as defined by
+ * {@link LineBreaks}, so every line of the file belongs to exactly one split.
+ */
+public class FileSplit {
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final long start;
+    private final long end;
+
+    public FileSplit(final File file, final long start, final long end) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start;
+    }
+
+    /**
+     * Cuts the file into at most {@code splitCount} splits of roughly equal size. Fewer splits are returned when the
+     * file has fewer lines than requested splits.
+     */
+    public static List<FileSplit> createSplits(final File file, final int splitCount) throws IOException {
+        return createSplits(file, splitCount, 0, file.length());
+    }
+
+    /**
+     * Cuts the byte range {@code [rangeStart, rangeEnd)} of the file into at most {@code splitCount} splits. The range
+     * itself must start at the beginning of a line and end at the end of a line or of the file.
+     */
+    public static List<FileSplit> createSplits(final File file,
+                                               final int splitCount,
+                                               final long rangeStart,
+                                               final long rangeEnd) throws IOException {
+        List<FileSplit> splits = new ArrayList<>(splitCount);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long rangeLength = rangeEnd - rangeStart;
+            long splitStart = rangeStart;
+
+            for (int i = 1; i <= splitCount && splitStart < rangeEnd; i++) {
+                long splitEnd = i == splitCount
+                        ? rangeEnd
+                        : Math.min(rangeEnd,
+                                nextLineStart(channel, Math.max(splitStart, rangeStart + rangeLength / splitCount * i)));
+                if (splitEnd > splitStart) {
+                    splits.add(new FileSplit(file, splitStart, splitEnd));
+                }
+                splitStart = splitEnd;
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * Counts the lines in this split the same way {@link java.io.BufferedReader#readLine()} would, including a final
+     * line that is not terminated by a line break.
+     */
+    public long countLines() throws IOException {
+        long lines = 0;
+        byte previous = '\n';
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long position = start;
+
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    final byte value = buffer.get(i);
+                    if (LineBreaks.endsLine(previous, value)) {
+                        lines++;
+                    }
+                    previous = value;
+                }
+                position += read;
+            }
+        }
+        return LineBreaks.isLineBreak(previous) ? lines : lines + 1;
+    }
+
+    private static long nextLineStart(final FileChannel channel, final long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long scanPosition = position - 1;
+        // Starts a byte early to see a line break directly before the position, but never returns that byte
+        byte previous = 0;
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, scanPosition);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                final byte value = buffer.get(i);
+                if (LineBreaks.startsLine(previous, value)) {
+                    return scanPosition + i;
+                }
+                previous = value;
+            }
+            scanPosition += read;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getName() + "[" + start + "-" + end + ")";
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens input files, transparently decompressing gzip files. Files made of several gzip members, as written by
+ * concatenating gzip files or by block compressors such as bgzip, can be decompressed on several threads at once.
+ */
+public final class GzipInput {
+    public static final String RUNNER_INPUT_GZIP_THREADS = "runner.input.gzip.threads";
+    private static final Logger LOG = LoggerFactory.getLogger(GzipInput.class);
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static volatile int DECOMPRESSION_THREADS = 1;
+
+    private GzipInput() {
+    }
+
+    /**
+     * Reads {@code runner.input.gzip.threads}, the number of threads that decompress a multi member gzip file.
+     */
+    public static void configure(final Properties properties) {
+        final int threads = Integer.parseInt(properties.getProperty(RUNNER_INPUT_GZIP_THREADS, "1"));
+        if (threads <= 0) {
+            throw new IllegalArgumentException(RUNNER_INPUT_GZIP_THREADS + " must be greater than zero");
+        }
+        DECOMPRESSION_THREADS = threads;
+    }
+
+    /**
+     * @return true when the file starts with the gzip magic number
+     */
+    public static boolean isGzip(final File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return input.read() == GZIP_MAGIC_1 && input.read() == GZIP_MAGIC_2;
+        }
+    }
+
+    /**
+     * Opens the file for reading, decompressing it if it is a gzip file.
+     */
+    public static InputStream open(final File file) throws IOException {
+        if (!isGzip(file)) {
+            return new FileInputStream(file);
+        }
+
+        if (DECOMPRESSION_THREADS > 1) {
+            final List<Long> members = ParallelGzipInputStream.findMembers(file);
+            if (members.size() > 1 && ParallelGzipInputStream.isSuitable(file, members)) {
+                LOG.info("Decompressing {} gzip members of {} on {} threads", members.size(), file,
+                        DECOMPRESSION_THREADS);
+                return new ParallelGzipInputStream(file, members, DECOMPRESSION_THREADS);
+            }
+        }
+        return new GZIPInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the value of {@code runner.input.file} into the files to read. The value is a comma separated list whose
+ * entries are files, directories, whose files are read in name order, or globs on the file name, eg.
+ * {@code data/part-*.gz}.
+ */
+public final class InputFiles {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private InputFiles() {
+    }
+
+    public static List<File> resolve(final String inputSpec) {
+        final List<File> files = new ArrayList<>();
+        for (String entry : inputSpec.split(",")) {
+            final String path = entry.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+
+            final File file = new File(path);
+            if (isGlob(file.getName())) {
+                files.addAll(listFiles(getDirectory(file), FileSystems.getDefault().getPathMatcher(
+                        "glob:" + file.getName())));
+            } else if (file.isDirectory()) {
+                files.addAll(listFiles(file, null));
+            } else {
+                files.add(file);
+            }
+        }
+
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No input files found for " + inputSpec);
+        }
+        return files;
+    }
+
+    /**
+     * @return the paths of the files as a comma separated list, which for a single file is just its path
+     */
+    public static String describe(final List<File> files) {
+        return files.stream().map(File::getPath).collect(Collectors.joining(","));
+    }
+
+    private static boolean isGlob(final String name) {
+        return name.chars().anyMatch(character -> GLOB_CHARACTERS.indexOf(character) >= 0);
+    }
+
+    private static File getDirectory(final File file) {
+        return file.getParentFile() != null ? file.getParentFile() : new File(".");
+    }
+
+    /**
+     * Lists the regular files of the directory in name order, leaving out hidden files and line indexes.
+     */
+    private static List<File> listFiles(final File directory, final PathMatcher nameMatcher) {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(children)
+                .filter(File::isFile)
+                .filter(child -> !child.getName().startsWith("."))
+                .filter(child -> !child.getName().endsWith(LineIndex.INDEX_SUFFIX))
+                .filter(child -> nameMatcher == null || nameMatcher.matches(Paths.get(child.getName())))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+/**
+ * A parser of lines that each hold a single int. Besides the boxed {@link #parseLine(String)}, it parses straight to
+ * a primitive, which lets the runner fill the batches of an IntTask without creating an object per line.
+ */
+public interface IntLineParser extends LineParser<Integer> {
+    int parseInt(String input) throws Exception;
+
+    /**
+     * Parses the int from the bytes of a line. Implementations should override this to avoid decoding the line.
+     */
+    default int parseInt(final ByteLine line) throws Exception {
+        return parseInt(line.toString());
+    }
+
+    @Override
+    default Integer parseLine(final String input) throws Exception {
+        return parseInt(input);
+    }
+}
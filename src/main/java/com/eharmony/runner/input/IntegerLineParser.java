@@ -16,10 +16,25 @@
 
 package com.eharmony.runner.input;
 
-public class IntegerLineParser implements LineParser<Integer> {
+public class IntegerLineParser implements IntLineParser, ByteLineParser<Integer> {
 
     @Override
     public Integer parseLine(final String input) {
         return Integer.parseInt(input);
     }
+
+    @Override
+    public int parseInt(final String input) {
+        return Integer.parseInt(input);
+    }
+
+    @Override
+    public Integer parseLine(final ByteLine line) {
+        return line.parseInt();
+    }
+
+    @Override
+    public int parseInt(final ByteLine line) {
+        return line.parseInt();
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.input;
+
+/**
+ * The one rule for where lines end, shared by every reader, splitter and index of text input so they all agree on
+ * the line numbers of a file. As with {@link java.io.BufferedReader#readLine()}, a line ends at {@code \n},
+ * {@code \r\n} or a lone {@code \r}.
+ */
+final class LineBreaks {
+    private LineBreaks() {
+    }
+
+    /**
+     * @return true if the byte is a {@code \n} or {@code \r}
+     */
+    static boolean isLineBreak(final byte value) {
+        return value == '\n' || value == '\r';
+    }
+
+    /**
+     * @return true if the byte is the {@code \n} of a {@code \r\n}, which belongs to the line break before it
+     */
+    static boolean continuesLineBreak(final byte previous, final byte value) {
+        return previous == '\r' && value == '\n';
+    }
+
+    /**
+     * @return true if the byte ends a line
+     */
+    static boolean endsLine(final byte previous, final byte value) {
+        return isLineBreak(value) && !continuesLineBreak(previous, value);
+    }
+
+    /**
+     * @return true if a line starts at the byte, given the byte before it. Pass {@code \n} as the previous byte at
+     * the start of a file or of a range that starts at a line.
+     */
+    static boolean startsLine(final byte previous, final byte value) {
+        return isLineBreak(previous) && !continuesLineBreak(previous, value);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sidecar index of a line delimited file holding the byte offset of every Nth line, so a reader can seek close to
+ * any record instead of reading every line before it. The index is stored next to the input file with an
+ * {@value #INDEX_SUFFIX} suffix and is ignored once the input file's size or modification time changes.
+ */
+public class LineIndex {
+    public static final String INDEX_SUFFIX = ".idx";
+    public static final int DEFAULT_INTERVAL = 10000;
+    private static final int INDEX_MAGIC = 0x4C494458;
+    private static final int INDEX_VERSION = 2;
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+
+    private final int interval;
+    private final long fileLength;
+    private final long lastModified;
+    private final long lineCount;
+    private final long[] offsets;
+
+    private LineIndex(final int interval,
+                      final long fileLength,
+                      final long lastModified,
+                      final long lineCount,
+                      final long[] offsets) {
+        this.interval = interval;
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.lineCount = lineCount;
+        this.offsets = offsets;
+    }
+
+    public static File getIndexFile(final File inputFile) {
+        return new File(inputFile.getPath() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Scans the whole input file once and records the offset of every {@code interval}th line.
+     */
+    public static LineIndex build(final File inputFile, final int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Index interval must be greater than zero");
+        }
+
+        final long lastModified = inputFile.lastModified();
+        long[] offsets = new long[16];
+        int offsetCount = 0;
+        long lineCount = 0;
+        long position = 0;
+        byte previous = '\n';
+
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            int read;
+
+            while ((read = channel.read(buffer, position)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    final byte value = buffer.get(i);
+                    if (LineBreaks.startsLine(previous, value)) {
+                        if (lineCount % interval == 0) {
+                            if (offsetCount == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, offsetCount * 2);
+                            }
+                            offsets[offsetCount++] = position + i;
+                        }
+                        lineCount++;
+                    }
+                    previous = value;
+                }
+                position += read;
+                buffer.clear();
+            }
+        }
+
+        return new LineIndex(interval, position, lastModified, lineCount, Arrays.copyOf(offsets, offsetCount));
+    }
+
+    /**
+     * @return the stored index for the input file, or empty when there is none, it is out of date or it is truncated
+     */
+    public static Optional<LineIndex> load(final File inputFile) throws IOException {
+        final File indexFile = getIndexFile(inputFile);
+        if (!indexFile.isFile()) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream input =
+                     new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+                return Optional.empty();
+            }
+
+            final int interval = input.readInt();
+            final long fileLength = input.readLong();
+            final long lastModified = input.readLong();
+            final long lineCount = input.readLong();
+            if (fileLength != inputFile.length() || lastModified != inputFile.lastModified()) {
+                return Optional.empty();
+            }
+
+            final int offsetCount = input.readInt();
+            if (interval <= 0 || offsetCount != (lineCount + interval - 1) / interval) {
+                return Optional.empty();
+            }
+
+            final long[] offsets = new long[offsetCount];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = input.readLong();
+            }
+            return Optional.of(new LineIndex(interval, fileLength, lastModified, lineCount, offsets));
+        } catch (EOFException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the index next to the input file. It is written to a temporary file first and then moved into place, so
+     * a crash while writing never leaves a truncated index behind.
+     */
+    public void write(final File inputFile) throws IOException {
+        final File indexFile = getIndexFile(inputFile);
+        final File tempFile = new File(indexFile.getPath() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeInt(interval);
+            output.writeLong(fileLength);
+            output.writeLong(lastModified);
+            output.writeLong(lineCount);
+            output.writeInt(offsets.length);
+            for (long offset : offsets) {
+                output.writeLong(offset);
+            }
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Finds where a record starts by seeking to the closest indexed line at or before it and scanning forward over
+     * the remaining lines.
+     *
+     * @return the byte offset of the given zero based record, or the file length if the file has fewer records
+     */
+    public long findLineOffset(final File inputFile, final long record) throws IOException {
+        if (record >= lineCount) {
+            return fileLength;
+        }
+
+        long position = offsets[(int) (record / interval)];
+        long linesToSkip = record % interval;
+        if (linesToSkip == 0) {
+            return position;
+        }
+        byte previous = '\n';
+
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            int read;
+
+            while ((read = channel.read(buffer, position)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    final byte value = buffer.get(i);
+                    if (LineBreaks.startsLine(previous, value) && linesToSkip-- == 0) {
+                        return position + i;
+                    }
+                    previous = value;
+                }
+                position += read;
+                buffer.clear();
+            }
+        }
+        return fileLength;
+    }
+}
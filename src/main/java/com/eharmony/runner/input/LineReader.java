@@ -19,52 +19,52 @@ package com.eharmony.runner.input;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
-public class LineReader<I> implements AutoCloseable {
+public class LineReader<I> implements RecordReader<I> {
     private BufferedReader reader;
     private LineParser<I> lineParser;
 
 
-    public LineReader(File inputFile, LineParser<I> lineParser) throws FileNotFoundException {
+    public LineReader(File inputFile, LineParser<I> lineParser) throws IOException {
         if (inputFile == null) {
             throw new FileNotFoundException("No input file specified");
         }
 
-        this.reader = new BufferedReader(new FileReader(inputFile));
-        this.lineParser = lineParser;
-    }
-
-    public LineReader(File inputFile, LineParser<I> lineParser,int skipSize) throws Exception {
-        if (inputFile == null) {
-            throw new FileNotFoundException("No input file specified");
-        }
-
-        this.reader = new BufferedReader(new FileReader(inputFile));
-        skipRecords(skipSize);
+        this.reader = openReader(inputFile);
         this.lineParser = lineParser;
     }
 
+    @Override
     public I parseNextInputLine() throws Exception {
-        String input = reader.readLine();
+        String input = readNextLine();
         if (input != null) {
             return lineParser.parseLine(input);
         }
         return null;
     }
 
+    /**
+     * Reads the next line without parsing it, for callers that parse lines on another thread.
+     */
+    @Override
+    public String readNextLine() throws Exception {
+        return reader.readLine();
+    }
+
     @Override
-    public void close() throws Exception {
+    public void close() throws IOException {
         if (reader != null) {
             reader.close();
         }
     }
 
-    private void skipRecords(int skipSize) throws Exception{
-        for(int i=0;i<skipSize;i++){
-            if(reader.readLine() == null){
-                break;
-            }
-        }
+    /**
+     * Opens the file as plain text, decompressing it first if it is gzip compressed.
+     */
+    private static BufferedReader openReader(File inputFile) throws IOException {
+        return new BufferedReader(new InputStreamReader(GzipInput.open(inputFile), Charset.defaultCharset()));
     }
 }
\ No newline at end of file
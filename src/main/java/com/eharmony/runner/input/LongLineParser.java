@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+/**
+ * A parser of lines that each hold a single long. Besides the boxed {@link #parseLine(String)}, it parses straight to
+ * a primitive, which lets the runner fill the batches of a LongTask without creating an object per line.
+ */
+public interface LongLineParser extends LineParser<Long> {
+    long parseLong(String input) throws Exception;
+
+    /**
+     * Parses the long from the bytes of a line. Implementations should override this to avoid decoding the line.
+     */
+    default long parseLong(final ByteLine line) throws Exception {
+        return parseLong(line.toString());
+    }
+
+    @Override
+    default Long parseLine(final String input) throws Exception {
+        return parseLong(input);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+public class LongNumberLineParser implements LongLineParser, ByteLineParser<Long> {
+
+    @Override
+    public long parseLong(final String input) {
+        return Long.parseLong(input);
+    }
+
+    @Override
+    public Long parseLine(final String input) {
+        return Long.parseLong(input);
+    }
+
+    @Override
+    public Long parseLine(final ByteLine line) {
+        return line.parseLong();
+    }
+
+    @Override
+    public long parseLong(final ByteLine line) {
+        return line.parseLong();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+/**
+ * Thrown by a parser for a line that does not match the expected record layout. The runner leaves such lines out of
+ * the batch and carries on, and batches that parse lines on a worker thread also count them as parse failures and
+ * reject them. It carries no stack trace, as bad lines in large inputs can be common and say nothing about the code.
+ */
+public class MalformedRecordException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public MalformedRecordException(final String message) {
+        super(message, null, false, false);
+    }
+}
@@ -16,16 +16,15 @@
 
 package com.eharmony.runner.input;
 
-import javafx.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PairIntegerCSVLineParser implements LineParser {
+public class PairIntegerCSVLineParser implements ByteLineParser<Pair<Integer, Integer>> {
 
     private static final Logger LOG = LoggerFactory.getLogger(PairIntegerCSVLineParser.class);
 
     @Override
-    public Object parseLine(final String input) throws Exception {
+    public Pair<Integer, Integer> parseLine(final String input) throws Exception {
         String[] pair = input.split(",");
         try {
             return new Pair<>(Integer.parseInt(pair[0]), Integer.parseInt(pair[1]));
@@ -34,4 +33,20 @@ public class PairIntegerCSVLineParser implements LineParser {
             return new Pair<>(-1,-1);
         }
     }
+
+    @Override
+    public Pair<Integer, Integer> parseLine(final ByteLine line) throws Exception {
+        final int firstComma = line.indexOf((byte) ',', 0);
+        if (firstComma >= 0) {
+            final int secondComma = line.indexOf((byte) ',', firstComma + 1);
+            final int secondEnd = secondComma < 0 ? line.length() : secondComma;
+            try {
+                return new Pair<>(line.parseInt(0, firstComma), line.parseInt(firstComma + 1, secondEnd));
+            } catch (NumberFormatException e) {
+                // logged below, like a line without a second field
+            }
+        }
+        LOG.error("Unable to parse line" + line);
+        return new Pair<>(-1,-1);
+    }
 }
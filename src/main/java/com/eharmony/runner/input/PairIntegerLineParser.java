@@ -16,12 +16,25 @@
 
 package com.eharmony.runner.input;
 
-import javafx.util.Pair;
-
-public class PairIntegerLineParser implements LineParser<Pair<Integer, Integer>> {
+public class PairIntegerLineParser implements ByteLineParser<Pair<Integer, Integer>> {
     @Override
     public Pair<Integer, Integer> parseLine(final String input) throws Exception {
         String[] pair = input.split("\\s+");
         return new Pair<>(Integer.parseInt(pair[0]), Integer.parseInt(pair[1]));
     }
+
+    /**
+     * Reads the first two whitespace separated fields straight from the bytes, ignoring any further fields just like
+     * the String version.
+     */
+    @Override
+    public Pair<Integer, Integer> parseLine(final ByteLine line) throws Exception {
+        final int firstEnd = line.nextWhitespace(0);
+        final int first = line.parseInt(0, firstEnd);
+        final int secondStart = line.skipWhitespace(firstEnd);
+        if (secondStart == line.length()) {
+            throw new ArrayIndexOutOfBoundsException(1);
+        }
+        return new Pair<>(first, line.parseInt(secondStart, line.nextWhitespace(secondStart)));
+    }
 }
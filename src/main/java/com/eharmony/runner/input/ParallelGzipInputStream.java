@@ -0,0 +1,447 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a multi member gzip file on a pool of threads while handing out its bytes in order.
+ * <p>
+ * Member boundaries are not recorded anywhere in a gzip file, so the file is first scanned for byte sequences that look
+ * like a member header. Consecutive candidates are grouped into units of roughly {@link #UNIT_SIZE} compressed bytes,
+ * and each unit is decompressed on its own, a whole member at a time, until it reaches the start of the next unit.
+ * Should a candidate turn out to lie inside compressed data, the unit before it simply decompresses past it, and the
+ * units that start too early are discarded. Every member is checked against the CRC in its trailer.
+ * <p>
+ * A unit holds at most {@link #MAX_UNIT_BYTES} decompressed bytes. A member that would take it past that ends the unit
+ * early, and is then decompressed on the reading thread a buffer at a time, so highly compressed members never have to
+ * fit in memory whole.
+ */
+class ParallelGzipInputStream extends InputStream {
+    private static final int UNIT_SIZE = 1024 * 1024;
+    private static final long MAX_MEMBER_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_UNIT_BYTES = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FLAG_HEADER_CRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+    private static final int RESERVED_FLAGS = 0xe0;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long[] unitStarts;
+    private final ExecutorService executor;
+    private final int readAhead;
+    private final Deque<PendingUnit> pendingUnits = new ArrayDeque<>();
+    private int nextScheduledUnit;
+    private long position;
+    private byte[] current = NO_BYTES;
+    private int currentOffset;
+    private MemberInflater streamedMember;
+    private Inflater streamInflater;
+    private byte[] streamBuffer;
+
+    ParallelGzipInputStream(final File file, final List<Long> members, final int threads) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.unitStarts = groupUnits(members);
+        this.readAhead = threads + 1;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-decompressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scans the file for the offsets where a gzip member could start. The first offset is always 0.
+     */
+    static List<Long> findMembers(final File file) throws IOException {
+        final List<Long> members = new ArrayList<>();
+        try (FileChannel scanChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            final byte[] bytes = buffer.array();
+            long offset = 0;
+            while (true) {
+                buffer.clear();
+                int length = 0;
+                int read;
+                while (buffer.hasRemaining() && (read = scanChannel.read(buffer, offset + length)) >= 0) {
+                    length += read;
+                }
+                for (int i = 0; i + HEADER_SIZE <= length; i++) {
+                    if (isMemberHeader(bytes, i)) {
+                        members.add(offset + i);
+                    }
+                }
+                if (length < bytes.length) {
+                    return members;
+                }
+                // Headers that straddle the end of the buffer are found by the next read
+                offset += length - HEADER_SIZE + 1;
+            }
+        }
+    }
+
+    /**
+     * @return false when a member may be too large to hold in memory, in which case the file is better read by a
+     * single streaming decompressor
+     */
+    static boolean isSuitable(final File file, final List<Long> members) {
+        if (members.isEmpty() || members.get(0) != 0) {
+            return false;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            final long end = i + 1 < members.size() ? members.get(i + 1) : file.length();
+            if (end - members.get(i) > MAX_MEMBER_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMemberHeader(final byte[] bytes, final int offset) {
+        final int extraFlags = bytes[offset + 8] & 0xff;
+        final int operatingSystem = bytes[offset + 9] & 0xff;
+        return (bytes[offset] & 0xff) == 0x1f
+                && (bytes[offset + 1] & 0xff) == 0x8b
+                && bytes[offset + 2] == Deflater.DEFLATED
+                && (bytes[offset + 3] & RESERVED_FLAGS) == 0
+                && (extraFlags == 0 || extraFlags == 2 || extraFlags == 4)
+                && (operatingSystem <= 13 || operatingSystem == 255);
+    }
+
+    private static long[] groupUnits(final List<Long> members) {
+        final List<Long> starts = new ArrayList<>();
+        for (long member : members) {
+            if (starts.isEmpty() || member - starts.get(starts.size() - 1) >= UNIT_SIZE) {
+                starts.add(member);
+            }
+        }
+        return starts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (currentOffset == current.length && !nextUnit()) {
+            return -1;
+        }
+        return current[currentOffset++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (currentOffset == current.length && !nextUnit()) {
+            return -1;
+        }
+        final int count = Math.min(length, current.length - currentOffset);
+        System.arraycopy(current, currentOffset, buffer, offset, count);
+        currentOffset += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.length - currentOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        if (streamInflater != null) {
+            streamInflater.end();
+        }
+        channel.close();
+    }
+
+    /**
+     * Moves on to the decompressed bytes of the unit that starts where the previous one ended, decompressing it on the
+     * calling thread if no unit was scheduled to start there. A member too large for a unit is streamed instead.
+     */
+    private boolean nextUnit() throws IOException {
+        do {
+            if (streamedMember != null) {
+                streamNextBuffer();
+                continue;
+            }
+            if (position >= fileSize) {
+                return false;
+            }
+            while (!pendingUnits.isEmpty() && pendingUnits.peekFirst().start < position) {
+                pendingUnits.pollFirst().result.cancel(false);
+            }
+            scheduleUnits();
+
+            final DecompressedUnit unit;
+            if (!pendingUnits.isEmpty() && pendingUnits.peekFirst().start == position) {
+                unit = await(pendingUnits.pollFirst());
+            } else {
+                final long end = pendingUnits.isEmpty()
+                        ? (nextScheduledUnit < unitStarts.length ? unitStarts[nextScheduledUnit] : fileSize)
+                        : pendingUnits.peekFirst().start;
+                unit = decompress(position, end);
+            }
+            position = unit.end;
+            current = unit.bytes;
+            currentOffset = 0;
+            if (unit.endsAtLargeMember) {
+                streamedMember = new MemberInflater(position, getStreamInflater());
+            }
+            scheduleUnits();
+        } while (current.length == 0);
+        return true;
+    }
+
+    private void streamNextBuffer() throws IOException {
+        final int count = streamedMember.inflate(streamBuffer);
+        if (count > 0) {
+            current = Arrays.copyOf(streamBuffer, count);
+        } else {
+            position = streamedMember.finish();
+            streamedMember = null;
+            current = NO_BYTES;
+        }
+        currentOffset = 0;
+    }
+
+    private Inflater getStreamInflater() {
+        if (streamInflater == null) {
+            streamInflater = new Inflater(true);
+            streamBuffer = new byte[READ_BUFFER_SIZE];
+        }
+        return streamInflater;
+    }
+
+    private void scheduleUnits() {
+        while (pendingUnits.size() < readAhead && nextScheduledUnit < unitStarts.length) {
+            final long start = unitStarts[nextScheduledUnit];
+            final long end = nextScheduledUnit + 1 < unitStarts.length ? unitStarts[nextScheduledUnit + 1] : fileSize;
+            nextScheduledUnit++;
+            if (start >= position) {
+                pendingUnits.addLast(new PendingUnit(start, executor.submit(() -> decompress(start, end))));
+            }
+        }
+    }
+
+    private DecompressedUnit await(final PendingUnit pendingUnit) throws IOException {
+        try {
+            return pendingUnit.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing input");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Failed to decompress input", ex.getCause());
+        }
+    }
+
+    /**
+     * Decompresses whole members from {@code start} until reaching or passing {@code end}, or until the next member
+     * would take the unit past {@link #MAX_UNIT_BYTES}.
+     */
+    private DecompressedUnit decompress(final long start, final long end) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(4 * (end - start), 1 << 24));
+        final Inflater inflater = new Inflater(true);
+        final byte[] inflated = new byte[READ_BUFFER_SIZE];
+        try {
+            long memberStart = start;
+            do {
+                final int memberOutputStart = output.size();
+                final MemberInflater member = new MemberInflater(memberStart, inflater);
+                int count;
+                while ((count = member.inflate(inflated)) > 0) {
+                    if (output.size() + count > MAX_UNIT_BYTES) {
+                        return new DecompressedUnit(Arrays.copyOf(output.toByteArray(), memberOutputStart),
+                                memberStart, true);
+                    }
+                    output.write(inflated, 0, count);
+                }
+                memberStart = member.finish();
+            } while (memberStart < end);
+            return new DecompressedUnit(output.toByteArray(), memberStart, false);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the offset of the compressed data following the member header
+     */
+    private long skipHeader(final long memberStart) throws IOException {
+        final ByteBuffer header = readFully(memberStart, HEADER_SIZE);
+        if (!isMemberHeader(header.array(), 0)) {
+            throw new ZipException("Not a gzip member at offset " + memberStart);
+        }
+        final int flags = header.get(3) & 0xff;
+        long offset = memberStart + HEADER_SIZE;
+        if ((flags & FLAG_EXTRA) != 0) {
+            final ByteBuffer extraLength = readFully(offset, 2);
+            offset += 2 + ((extraLength.get(0) & 0xff) | (extraLength.get(1) & 0xff) << 8);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            offset = skipZeroTerminated(offset);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            offset = skipZeroTerminated(offset);
+        }
+        if ((flags & FLAG_HEADER_CRC) != 0) {
+            offset += 2;
+        }
+        return offset;
+    }
+
+    private long skipZeroTerminated(final long start) throws IOException {
+        long offset = start;
+        while (readFully(offset, 1).get(0) != 0) {
+            offset++;
+        }
+        return offset + 1;
+    }
+
+    private ByteBuffer readFully(final long offset, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of gzip file at offset " + offset);
+            }
+        }
+        return buffer;
+    }
+
+    private static long readIntLittleEndian(final ByteBuffer buffer, final int index) {
+        return (buffer.get(index) & 0xffL)
+                | (buffer.get(index + 1) & 0xffL) << 8
+                | (buffer.get(index + 2) & 0xffL) << 16
+                | (buffer.get(index + 3) & 0xffL) << 24;
+    }
+
+    private static final class PendingUnit {
+        private final long start;
+        private final Future<DecompressedUnit> result;
+
+        private PendingUnit(final long start, final Future<DecompressedUnit> result) {
+            this.start = start;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Inflates a single member a buffer at a time, and checks it against the CRC and size in its trailer once it ends.
+     */
+    private final class MemberInflater {
+        private final long memberStart;
+        private final Inflater inflater;
+        private final byte[] input = new byte[READ_BUFFER_SIZE];
+        private final CRC32 crc = new CRC32();
+        private long inputPosition;
+        private long inflatedSize;
+
+        private MemberInflater(final long memberStart, final Inflater inflater) throws IOException {
+            this.memberStart = memberStart;
+            this.inflater = inflater;
+            this.inputPosition = skipHeader(memberStart);
+            inflater.reset();
+        }
+
+        /**
+         * @return the number of bytes inflated into the buffer, or 0 once the member has ended
+         */
+        private int inflate(final byte[] buffer) throws IOException {
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        final int read = channel.read(ByteBuffer.wrap(input), inputPosition);
+                        if (read <= 0) {
+                            throw new EOFException("Unexpected end of gzip member at offset " + memberStart);
+                        }
+                        inflater.setInput(input, 0, read);
+                        inputPosition += read;
+                    }
+                    final int count = inflater.inflate(buffer);
+                    if (count == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("Invalid gzip member at offset " + memberStart);
+                    }
+                    if (count > 0) {
+                        crc.update(buffer, 0, count);
+                        inflatedSize += count;
+                        return count;
+                    }
+                }
+                return 0;
+            } catch (DataFormatException ex) {
+                throw new ZipException("Invalid gzip member at offset " + memberStart + ": " + ex.getMessage());
+            }
+        }
+
+        /**
+         * @return the offset directly after the member
+         */
+        private long finish() throws IOException {
+            final long trailerStart = inputPosition - inflater.getRemaining();
+            final ByteBuffer trailer = readFully(trailerStart, TRAILER_SIZE);
+            if (readIntLittleEndian(trailer, 0) != crc.getValue()
+                    || readIntLittleEndian(trailer, 4) != (inflatedSize & 0xffffffffL)) {
+                throw new ZipException("Corrupt gzip member at offset " + memberStart);
+            }
+            return trailerStart + TRAILER_SIZE;
+        }
+    }
+
+    private static final class DecompressedUnit {
+        private final byte[] bytes;
+        private final long end;
+        private final boolean endsAtLargeMember;
+
+        private DecompressedUnit(final byte[] bytes, final long end, final boolean endsAtLargeMember) {
+            this.bytes = bytes;
+            this.end = end;
+            this.endsAtLargeMember = endsAtLargeMember;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.input;
+
+import java.io.IOException;
+
+/**
+ * A source of input records. Implementations hand out raw lines or parsed records one at a time and are only ever
+ * read by a single thread.
+ */
+public interface RecordReader<I> extends AutoCloseable {
+    /**
+     * @return the next record parsed with the reader's {@link LineParser}, or null when the input is exhausted
+     */
+    I parseNextInputLine() throws Exception;
+
+    /**
+     * @return the next unparsed line, or null when the input is exhausted
+     */
+    String readNextLine() throws Exception;
+
+    /**
+     * Reads up to {@code length} int records straight into the array, without boxing them.
+     *
+     * @return the number of values read, which is 0 once the input is exhausted
+     */
+    default int readInts(final IntLineParser parser, final int[] values, final int length) throws Exception {
+        int count = 0;
+        String line;
+        while (count < length && (line = readNextLine()) != null) {
+            values[count++] = parser.parseInt(line);
+        }
+        return count;
+    }
+
+    /**
+     * Reads up to {@code length} long records straight into the array, without boxing them.
+     *
+     * @return the number of values read, which is 0 once the input is exhausted
+     */
+    default int readLongs(final LongLineParser parser, final long[] values, final int length) throws Exception {
+        int count = 0;
+        String line;
+        while (count < length && (line = readNextLine()) != null) {
+            values[count++] = parser.parseLong(line);
+        }
+        return count;
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.input;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a single {@link FileSplit} through a memory mapped window of the file, so several splits of the
+ * same file can be read concurrently by separate threads. Lines are expected to be UTF-8 and terminated by
+ * {@code \n}, {@code \r\n} or a lone {@code \r}, as defined by {@link LineBreaks}. Like {@link ByteLineReader}, lines are handed to byte parsers as a reused
+ * {@link ByteLine} without being decoded.
+ */
+public class SplitLineReader<I> implements RecordReader<I> {
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final LineParser<I> lineParser;
+    private final ByteLineParser<I> byteLineParser;
+    private final ByteLine line = new ByteLine();
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long remainingRecords;
+    private byte[] lineBuffer = new byte[256];
+
+    /**
+     * @param split         the byte range to read
+     * @param lineParser    parser applied by {@link #parseNextInputLine()}
+     * @param skipRecords   number of lines at the start of the split to skip
+     * @param recordLimit   maximum number of lines to return after skipping
+     */
+    @SuppressWarnings("unchecked")
+    public SplitLineReader(final FileSplit split,
+                           final LineParser<I> lineParser,
+                           final long skipRecords,
+                           final long recordLimit) throws IOException {
+        this.byteLineParser = lineParser instanceof ByteLineParser ? (ByteLineParser<I>) lineParser : null;
+        this.channel = FileChannel.open(split.getFile().toPath(), StandardOpenOption.READ);
+        this.lineParser = lineParser;
+        this.position = split.getStart();
+        this.end = split.getEnd();
+        this.remainingRecords = recordLimit;
+        skipLines(skipRecords);
+    }
+
+    @Override
+    public I parseNextInputLine() throws Exception {
+        if (byteLineParser != null) {
+            final ByteLine input = nextLine();
+            return input == null ? null : byteLineParser.parseLine(input);
+        }
+        String input = readNextLine();
+        if (input != null) {
+            return lineParser.parseLine(input);
+        }
+        return null;
+    }
+
+    @Override
+    public String readNextLine() throws IOException {
+        final ByteLine input = nextLine();
+        return input == null ? null : new String(lineBuffer, 0, input.length(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int readInts(final IntLineParser parser, final int[] values, final int length) throws Exception {
+        int count = 0;
+        ByteLine input;
+        while (count < length && (input = nextLine()) != null) {
+            values[count++] = parser.parseInt(input);
+        }
+        return count;
+    }
+
+    @Override
+    public int readLongs(final LongLineParser parser, final long[] values, final int length) throws Exception {
+        int count = 0;
+        ByteLine input;
+        while (count < length && (input = nextLine()) != null) {
+            values[count++] = parser.parseLong(input);
+        }
+        return count;
+    }
+
+    /**
+     * @return a view of the next line that is only valid until the next read, or null when the split is exhausted
+     */
+    public ByteLine nextLine() throws IOException {
+        if (remainingRecords <= 0 || position >= end) {
+            return null;
+        }
+
+        int length = 0;
+        while (position < end) {
+            byte value = nextByte();
+            if (LineBreaks.isLineBreak(value)) {
+                skipLineFeed(value);
+                break;
+            }
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, length * 2);
+            }
+            lineBuffer[length++] = value;
+        }
+
+        remainingRecords--;
+        return line.set(lineBuffer, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void skipLines(final long lines) throws IOException {
+        for (long skipped = 0; skipped < lines && position < end; ) {
+            final byte value = nextByte();
+            if (LineBreaks.isLineBreak(value)) {
+                skipLineFeed(value);
+                skipped++;
+            }
+        }
+    }
+
+    /**
+     * Moves past the {@code \n} of a {@code \r\n} once its {@code \r} has ended a line.
+     */
+    private void skipLineFeed(final byte lineBreak) throws IOException {
+        if (position < end && LineBreaks.continuesLineBreak(lineBreak, peekByte())) {
+            position++;
+        }
+    }
+
+    private byte nextByte() throws IOException {
+        final byte value = peekByte();
+        position++;
+        return value;
+    }
+
+    private byte peekByte() throws IOException {
+        if (window == null || position - windowStart >= window.limit()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(MAP_WINDOW_SIZE, end - windowStart));
+        }
+        return window.get((int) (position - windowStart));
+    }
+}
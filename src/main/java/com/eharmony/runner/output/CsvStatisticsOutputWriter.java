@@ -18,7 +18,10 @@ package com.eharmony.runner.output;
 
 import com.eharmony.runner.file.TaskFileWriter;
 import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.Counter;
 import com.eharmony.runner.statistics.Counters;
+import com.eharmony.runner.statistics.KeyedCounterTable;
+import com.eharmony.runner.statistics.KeyedCounters;
 import com.eharmony.runner.task.TaskRunner;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -31,7 +34,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormat.forPattern("ddMMyyyy-HHmmss");
@@ -40,8 +42,8 @@ public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
     @Override
     public void outputCounters() {
         try (TaskFileWriter fileWriter =
-                     TaskFileWriter.getFileWriter(DATE_FORMAT.print(DateTime.now()) + ".counters.csv")) {
-            List<Map.Entry<String, AtomicLong>> counters = new ArrayList<>(Counters.getCounters().entrySet());
+                     TaskFileWriter.getUnshardedFileWriter(DATE_FORMAT.print(DateTime.now()) + ".counters.csv")) {
+            List<Map.Entry<String, Counter>> counters = new ArrayList<>(Counters.getCounterHandles().entrySet());
 
             if (counters.size() == 0) {
                 LOG.warn("No counters found, no counters.csv will be created.");
@@ -51,7 +53,7 @@ public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
             fileWriter.write("COUNTER_NAME,COUNTER_VALUE\n");
             Collections.sort(counters, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
 
-            for (Map.Entry<String, AtomicLong> counter : counters) {
+            for (Map.Entry<String, Counter> counter : counters) {
                 fileWriter.write(String.format("%s,%d\n", counter.getKey(), counter.getValue().get()));
             }
             fileWriter.close();
@@ -63,7 +65,7 @@ public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
     @Override
     public void outputAggregators() {
         try (TaskFileWriter fileWriter =
-                    TaskFileWriter.getFileWriter(DATE_FORMAT.print(DateTime.now()) + ".aggregators.csv")) {
+                    TaskFileWriter.getUnshardedFileWriter(DATE_FORMAT.print(DateTime.now()) + ".aggregators.csv")) {
             List<Map.Entry<String, Aggregators.Aggregator>> aggregators =
                     new ArrayList<>(Aggregators.getAggregators().entrySet());
 
@@ -72,7 +74,7 @@ public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
                 return;
             }
 
-            fileWriter.write("AGGREGATOR_NAME,MEAN,MEDIAN,MODE,MIN,MAX\n");
+            fileWriter.write("AGGREGATOR_NAME,MEAN,MEDIAN,MODE,MIN,MAX,P90,P99,P999\n");
             Collections.sort(aggregators, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
 
             for (Map.Entry<String, Aggregators.Aggregator> aggregator : aggregators) {
@@ -83,10 +85,39 @@ public class CsvStatisticsOutputWriter implements StatisticsOutputWriter {
                         LogStatisticsOutputWriter.truncateDecimal(aggregator.getValue().getMedian())));
                 fileWriter.write(String.format("%d,", aggregator.getValue().getMode()));
                 fileWriter.write(String.format("%d,", aggregator.getValue().getMin()));
-                fileWriter.write(String.format("%d\n", aggregator.getValue().getMax()));
+                fileWriter.write(String.format("%d,", aggregator.getValue().getMax()));
+                fileWriter.write(String.format("%s,",
+                        LogStatisticsOutputWriter.truncateDecimal(aggregator.getValue().getPercentile(0.9))));
+                fileWriter.write(String.format("%s,",
+                        LogStatisticsOutputWriter.truncateDecimal(aggregator.getValue().getPercentile(0.99))));
+                fileWriter.write(String.format("%s\n",
+                        LogStatisticsOutputWriter.truncateDecimal(aggregator.getValue().getPercentile(0.999))));
             }
         } catch (IOException ex) {
             LOG.error("Unable to write to aggregators.csv file.", ex);
         }
     }
+
+    @Override
+    public void outputKeyedCounters() {
+        List<Map.Entry<String, KeyedCounterTable>> tables = new ArrayList<>(KeyedCounters.getTables().entrySet());
+
+        if (tables.size() == 0) {
+            return;
+        }
+
+        try (TaskFileWriter fileWriter =
+                    TaskFileWriter.getUnshardedFileWriter(DATE_FORMAT.print(DateTime.now()) + ".keyed_counters.csv")) {
+            fileWriter.write("TABLE_NAME,KEY,COUNTER_VALUE\n");
+            Collections.sort(tables, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
+
+            for (Map.Entry<String, KeyedCounterTable> table : tables) {
+                for (Map.Entry<String, Long> entry : KeyedCounters.getReportEntries(table.getValue())) {
+                    fileWriter.write(String.format("%s,%s,%d\n", table.getKey(), entry.getKey(), entry.getValue()));
+                }
+            }
+        } catch (IOException ex) {
+            LOG.error("Unable to write to keyed_counters.csv file.", ex);
+        }
+    }
 }
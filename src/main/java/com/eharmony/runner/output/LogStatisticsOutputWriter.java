@@ -17,7 +17,10 @@
 package com.eharmony.runner.output;
 
 import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.Counter;
 import com.eharmony.runner.statistics.Counters;
+import com.eharmony.runner.statistics.KeyedCounterTable;
+import com.eharmony.runner.statistics.KeyedCounters;
 import com.eharmony.runner.task.TaskRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,7 +30,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class LogStatisticsOutputWriter implements StatisticsOutputWriter {
     private static final int PRINT_PADDING = 30;
@@ -35,7 +37,7 @@ public class LogStatisticsOutputWriter implements StatisticsOutputWriter {
 
     @Override
     public void outputCounters() {
-        List<Map.Entry<String, AtomicLong>> counters = new ArrayList<>(Counters.getCounters().entrySet());
+        List<Map.Entry<String, Counter>> counters = new ArrayList<>(Counters.getCounterHandles().entrySet());
 
         if (counters.size() == 0) {
             return;
@@ -47,7 +49,7 @@ public class LogStatisticsOutputWriter implements StatisticsOutputWriter {
 
         Collections.sort(counters, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
 
-        for (Map.Entry<String, AtomicLong> counter : counters) {
+        for (Map.Entry<String, Counter> counter : counters) {
             LOG.info("{}\t{}", normalizeCounterName(counter.getKey()), counter.getValue());
         }
         LOG.info("========================================================");
@@ -75,6 +77,36 @@ public class LogStatisticsOutputWriter implements StatisticsOutputWriter {
             LOG.info("{}\t{}", normalizeCounterName("MODE"), aggregator.getValue().getMode());
             LOG.info("{}\t{}", normalizeCounterName("MIN"), aggregator.getValue().getMin());
             LOG.info("{}\t{}", normalizeCounterName("MAX"), aggregator.getValue().getMax());
+            LOG.info("{}\t{}", normalizeCounterName("P90"), truncateDecimal(aggregator.getValue().getPercentile(0.9)));
+            LOG.info("{}\t{}", normalizeCounterName("P99"), truncateDecimal(aggregator.getValue().getPercentile(0.99)));
+            LOG.info("{}\t{}", normalizeCounterName("P999"),
+                    truncateDecimal(aggregator.getValue().getPercentile(0.999)));
+        }
+        LOG.info("========================================================");
+    }
+
+    @Override
+    public void outputKeyedCounters() {
+        List<Map.Entry<String, KeyedCounterTable>> tables = new ArrayList<>(KeyedCounters.getTables().entrySet());
+
+        if (tables.size() == 0) {
+            return;
+        }
+
+        LOG.info("========================================================");
+        LOG.info("Keyed Counters");
+        LOG.info("========================================================");
+
+        Collections.sort(tables, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
+
+        for (Map.Entry<String, KeyedCounterTable> table : tables) {
+            List<Map.Entry<String, Long>> entries = KeyedCounters.getReportEntries(table.getValue());
+
+            LOG.info("--{} ({} of {} keys{})", table.getKey(), entries.size(), table.getValue().size(),
+                    table.getValue().isApproximate() ? ", approximate" : "");
+            for (Map.Entry<String, Long> entry : entries) {
+                LOG.info("{}\t{}", normalizeCounterName(entry.getKey()), entry.getValue());
+            }
         }
         LOG.info("========================================================");
     }
@@ -19,4 +19,10 @@ package com.eharmony.runner.output;
 public interface StatisticsOutputWriter {
     void outputCounters();
     void outputAggregators();
+
+    /**
+     * Writes the keyed counter tables. Does nothing by default, so writers that predate keyed counters keep working.
+     */
+    default void outputKeyedCounters() {
+    }
 }
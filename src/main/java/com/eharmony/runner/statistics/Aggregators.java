@@ -16,23 +16,62 @@
 
 package com.eharmony.runner.statistics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class Aggregators {
+    public static final String RUNNER_AGGREGATOR_SKETCH = "runner.aggregator.sketch";
+    public static final String RUNNER_AGGREGATOR_SKETCH_ACCURACY = "runner.aggregator.sketch.accuracy";
+    public static final double DEFAULT_SKETCH_ACCURACY = 0.01;
+    private static final String ALL_AGGREGATORS = "*";
+    private static final byte EXACT_AGGREGATOR = 0;
+    private static final byte SKETCH_AGGREGATOR = 1;
     private static ConcurrentHashMap<String, Aggregator> AGGREGATOR_MAP =
             new ConcurrentHashMap<>();
+    private static volatile Set<String> SKETCH_AGGREGATORS = Collections.emptySet();
+    private static volatile double SKETCH_ACCURACY = DEFAULT_SKETCH_ACCURACY;
+
+    /**
+     * Reads which aggregators keep a fixed size sketch instead of every value. {@code runner.aggregator.sketch} is a
+     * comma separated list of aggregator names, or * for all of them. Only aggregators created afterwards are
+     * affected.
+     */
+    public static void configure(final Properties properties) {
+        Set<String> sketchAggregators = new HashSet<>();
+        for (String aggregateName : properties.getProperty(RUNNER_AGGREGATOR_SKETCH, "").split(",")) {
+            if (!aggregateName.trim().isEmpty()) {
+                sketchAggregators.add(aggregateName.trim());
+            }
+        }
+        SKETCH_AGGREGATORS = sketchAggregators;
+        SKETCH_ACCURACY = Double.parseDouble(properties.getProperty(RUNNER_AGGREGATOR_SKETCH_ACCURACY,
+                Double.toString(DEFAULT_SKETCH_ACCURACY)));
+    }
 
     public static void aggregate(String aggregateName, Integer value) {
-        aggregate(aggregateName, new Long(value));
+        aggregate(aggregateName, value.longValue());
     }
 
     public static void aggregate(String aggregateName, Long value) {
+        aggregate(aggregateName, value.longValue());
+    }
+
+    public static void aggregate(String aggregateName, int value) {
+        aggregate(aggregateName, (long) value);
+    }
+
+    public static void aggregate(String aggregateName, long value) {
         Aggregator aggregate = getAggregate(aggregateName);
 
         aggregate.add(value);
@@ -42,11 +81,41 @@ public class Aggregators {
         return AGGREGATOR_MAP;
     }
 
+    /**
+     * Writes every aggregator's state, so it can later be restored with {@link #readSnapshot(DataInput)}.
+     */
+    public static void writeSnapshot(final DataOutput output) throws IOException {
+        final Map<String, Aggregator> aggregators = new HashMap<>(AGGREGATOR_MAP);
+
+        output.writeInt(aggregators.size());
+        for (Map.Entry<String, Aggregator> aggregator : aggregators.entrySet()) {
+            output.writeUTF(aggregator.getKey());
+            output.writeByte(aggregator.getValue() instanceof SketchAggregator ? SKETCH_AGGREGATOR : EXACT_AGGREGATOR);
+            aggregator.getValue().writeValues(output);
+        }
+    }
+
+    /**
+     * Replaces all aggregators with the ones written by {@link #writeSnapshot(DataOutput)}.
+     */
+    public static void readSnapshot(final DataInput input) throws IOException {
+        AGGREGATOR_MAP.clear();
+
+        final int aggregatorCount = input.readInt();
+        for (int i = 0; i < aggregatorCount; i++) {
+            final String aggregateName = input.readUTF();
+            final Aggregator aggregator = input.readByte() == SKETCH_AGGREGATOR
+                    ? SketchAggregator.readValues(input)
+                    : ExactAggregator.readValues(input);
+            AGGREGATOR_MAP.put(aggregateName, aggregator);
+        }
+    }
+
     private static Aggregator getAggregate(String aggregateName) {
         Aggregator aggregator = AGGREGATOR_MAP.get(aggregateName);
 
         if (aggregator == null) {
-            aggregator = AGGREGATOR_MAP.putIfAbsent(aggregateName, new Aggregator());
+            aggregator = AGGREGATOR_MAP.putIfAbsent(aggregateName, newAggregator(aggregateName));
 
             if (aggregator == null) {
                 aggregator = AGGREGATOR_MAP.get(aggregateName);
@@ -55,85 +124,223 @@ public class Aggregators {
         return aggregator;
     }
 
-    public static class Aggregator {
-        private List<Long> aggregateValues = new ArrayList<>();
-        private List<Long> sortedValues;
-        private Long min;
-        private Long max;
-        private Long sum = 0L;
+    private static Aggregator newAggregator(final String aggregateName) {
+        final Set<String> sketchAggregators = SKETCH_AGGREGATORS;
+        if (sketchAggregators.contains(aggregateName) || sketchAggregators.contains(ALL_AGGREGATORS)) {
+            return new SketchAggregator(SKETCH_ACCURACY);
+        }
+        return new ExactAggregator();
+    }
+
+    public interface Aggregator {
+        void add(long value);
 
-        public synchronized void add(Long value) {
-            if (min == null || value < min) {
-                min = value;
-            }
-            if (max == null || value > max) {
-                max = value;
+        long getCount();
+
+        Double getMean();
+
+        Double getMedian();
+
+        Long getMode();
+
+        Long getMin();
+
+        Long getMax();
+
+        /**
+         * @param quantile a value between 0 and 1, eg. 0.99 for the 99th percentile
+         */
+        Double getPercentile(double quantile);
+
+        void writeValues(DataOutput output) throws IOException;
+    }
+
+    /**
+     * Aggregator that keeps every value, so all of its statistics are exact. Threads append to one of a fixed number of
+     * primitive shards picked by thread id, so threads aggregating into the same name rarely wait on each other. Each
+     * shard keeps its own sum, min and max, so the mean, min and max are merged from the shards without touching the
+     * values. The shards are only merged and sorted for the median, mode and percentiles, and the sorted values are
+     * reused until more values are added.
+     */
+    public static class ExactAggregator implements Aggregator {
+        private final ShardStripes<ValueShard> shards = new ShardStripes<>(ValueShard::new);
+        private long[] sortedValues = new long[0];
+
+        @Override
+        public void add(long value) {
+            shards.get().add(value);
+        }
+
+        @Override
+        public long getCount() {
+            long count = 0;
+            for (ValueShard shard : shards.getShards()) {
+                count += shard.size();
             }
-            aggregateValues.add(value);
-            sum += value;
+            return count;
         }
 
+        @Override
         public Double getMean() {
-            return sum / ((1d) * aggregateValues.size());
+            long count = 0;
+            long sum = 0L;
+            for (ValueShard shard : shards.getShards()) {
+                synchronized (shard) {
+                    count += shard.size;
+                    sum += shard.sum;
+                }
+            }
+            return sum / ((1d) * count);
         }
 
-        public Double getMedian() {
-            if (aggregateValues.size() == 0) {
+        @Override
+        public synchronized Double getMedian() {
+            final long[] values = getSortedValues();
+            if (values.length == 0) {
                 return 0d;
             }
 
-            final List<Long> values = getSortedValues();
-            final int listSize      = values.size();
-            final int middleIndex   = (listSize - 1) / 2;
+            final int middleIndex = (values.length - 1) / 2;
 
-            if (listSize % 2 == 0) {
-                return (values.get(middleIndex) + values.get(middleIndex + 1)) / 2d;
+            if (values.length % 2 == 0) {
+                return (values[middleIndex] + values[middleIndex + 1]) / 2d;
             } else {
-                return (1d) * values.get(middleIndex);
+                return (1d) * values[middleIndex];
             }
         }
 
-        public Long getMode() {
-            Long modeCount = 0L;
-            Long modeValue = 0L;
-            Map<Long, Long> counts = new HashMap<>();
-
-            for (Long value : getSortedValues()) {
-                Long valueCount = counts.get(value);
+        @Override
+        public synchronized Long getMode() {
+            final long[] values = getSortedValues();
+            long modeValue = 0L;
+            long modeCount = 0L;
 
-                if (valueCount == null) {
-                    valueCount = 0L;
+            for (int runStart = 0, runEnd; runStart < values.length; runStart = runEnd) {
+                runEnd = runStart + 1;
+                while (runEnd < values.length && values[runEnd] == values[runStart]) {
+                    runEnd++;
                 }
-
-                valueCount++;
-
-                if (valueCount > modeCount) {
-                    modeValue = value;
-                    modeCount = valueCount;
+                if (runEnd - runStart > modeCount) {
+                    modeValue = values[runStart];
+                    modeCount = runEnd - runStart;
                 }
-
-                counts.put(value, valueCount);
             }
 
             return modeValue;
         }
 
+        @Override
         public Long getMin() {
+            Long min = null;
+            for (ValueShard shard : shards.getShards()) {
+                final Long shardMin = shard.min();
+                if (shardMin != null && (min == null || shardMin < min)) {
+                    min = shardMin;
+                }
+            }
             return min;
         }
 
+        @Override
         public Long getMax() {
+            Long max = null;
+            for (ValueShard shard : shards.getShards()) {
+                final Long shardMax = shard.max();
+                if (shardMax != null && (max == null || shardMax > max)) {
+                    max = shardMax;
+                }
+            }
             return max;
         }
 
-        private List<Long> getSortedValues() {
-            if (sortedValues == null) {
-                sortedValues = Arrays.asList(new Long[aggregateValues.size()]);
-                Collections.copy(sortedValues, aggregateValues);
-                Collections.sort(sortedValues);
+        @Override
+        public synchronized Double getPercentile(final double quantile) {
+            final long[] values = getSortedValues();
+            if (values.length == 0) {
+                return 0d;
+            }
+
+            final int rank = (int) Math.ceil(quantile * values.length);
+            return (1d) * values[Math.max(0, Math.min(values.length - 1, rank - 1))];
+        }
+
+        @Override
+        public synchronized void writeValues(final DataOutput output) throws IOException {
+            final long[] values = getSortedValues();
+            output.writeInt(values.length);
+            for (long value : values) {
+                output.writeLong(value);
+            }
+        }
+
+        static ExactAggregator readValues(final DataInput input) throws IOException {
+            final ExactAggregator aggregator = new ExactAggregator();
+            final int valueCount = input.readInt();
+            for (int i = 0; i < valueCount; i++) {
+                aggregator.add(input.readLong());
+            }
+            return aggregator;
+        }
+
+        private long[] getSortedValues() {
+            if (getCount() != sortedValues.length) {
+                List<long[]> shardValues = new ArrayList<>(ShardStripes.STRIPE_COUNT);
+                int valueCount = 0;
+                for (ValueShard shard : shards.getShards()) {
+                    long[] values = shard.copyValues();
+                    shardValues.add(values);
+                    valueCount += values.length;
+                }
+
+                long[] values = new long[valueCount];
+                int position = 0;
+                for (long[] shardValue : shardValues) {
+                    System.arraycopy(shardValue, 0, values, position, shardValue.length);
+                    position += shardValue.length;
+                }
+
+                Arrays.sort(values);
+                sortedValues = values;
             }
             return sortedValues;
         }
     }
 
+    /**
+     * Values added by the threads hashed to one stripe, along with their sum, min and max. The lock is only contended
+     * when two of those threads add at the same time, or while a reader copies the values out.
+     */
+    private static class ValueShard {
+        private long[] values = new long[64];
+        private int size;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        synchronized void add(final long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Long min() {
+            return size == 0 ? null : min;
+        }
+
+        synchronized Long max() {
+            return size == 0 ? null : max;
+        }
+
+        synchronized long[] copyValues() {
+            return Arrays.copyOf(values, size);
+        }
+    }
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Exact keyed counter table for high cardinality keys. Keys are stored once as UTF-8 bytes in a per segment byte
+ * arena and counts live in primitive arrays of an open addressing hash table, so an entry costs about 30 bytes plus
+ * its key instead of a map node, a String and a counter object. The table is split into independently locked
+ * segments to keep contention low.
+ */
+public class CompactCounterTable implements KeyedCounterTable {
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final ThreadLocal<byte[][]> KEY_BUFFER = ThreadLocal.withInitial(() -> new byte[][] {new byte[64]});
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    public CompactCounterTable() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public void add(final String key, final long amount) {
+        final byte[][] buffer = KEY_BUFFER.get();
+        final int length = encode(key, buffer);
+        final int hash = hash(buffer[0], length);
+
+        segmentFor(hash).add(buffer[0], length, hash, amount);
+    }
+
+    @Override
+    public long get(final String key) {
+        final byte[][] buffer = KEY_BUFFER.get();
+        final int length = encode(key, buffer);
+        final int hash = hash(buffer[0], length);
+
+        return segmentFor(hash).get(buffer[0], length, hash);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isApproximate() {
+        return false;
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getTopEntries(final int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        final PriorityQueue<Map.Entry<String, Long>> topEntries =
+                new PriorityQueue<>(count, (thisEntry, thatEntry) -> thisEntry.getValue().compareTo(thatEntry.getValue()));
+        for (Segment segment : segments) {
+            segment.collectTop(topEntries, count);
+        }
+
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(topEntries);
+        Collections.sort(entries, (thisEntry, thatEntry) -> thatEntry.getValue().compareTo(thisEntry.getValue()));
+        return entries;
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getEntries() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.collectAll(entries);
+        }
+        Collections.sort(entries, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
+        return entries;
+    }
+
+    @Override
+    public void writeTo(final DataOutput output) throws IOException {
+        final List<Map.Entry<String, Long>> entries = getEntries();
+        output.writeInt(entries.size());
+        for (Map.Entry<String, Long> entry : entries) {
+            output.writeUTF(entry.getKey());
+            output.writeLong(entry.getValue());
+        }
+    }
+
+    static CompactCounterTable readFrom(final DataInput input) throws IOException {
+        final CompactCounterTable table = new CompactCounterTable();
+        final int entryCount = input.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            table.add(input.readUTF(), input.readLong());
+        }
+        return table;
+    }
+
+    private Segment segmentFor(final int hash) {
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    /**
+     * Encodes the key as UTF-8 into the thread's reusable buffer, growing it when needed.
+     *
+     * @return the number of bytes written
+     */
+    private static int encode(final String key, final byte[][] buffer) {
+        final int maxLength = key.length() * 3;
+        if (buffer[0].length < maxLength) {
+            buffer[0] = new byte[Math.max(maxLength, buffer[0].length * 2)];
+        }
+
+        final byte[] bytes = buffer[0];
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            final char value = key.charAt(i);
+            if (value < 0x80) {
+                bytes[length++] = (byte) value;
+            } else if (value < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (value >> 6));
+                bytes[length++] = (byte) (0x80 | (value & 0x3F));
+            } else if (Character.isHighSurrogate(value) && i + 1 < key.length()
+                    && Character.isLowSurrogate(key.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(value, key.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(value)) {
+                bytes[length++] = (byte) '?';
+            } else {
+                bytes[length++] = (byte) (0xE0 | (value >> 12));
+                bytes[length++] = (byte) (0x80 | ((value >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (value & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    private static int hash(final byte[] bytes, final int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * One open addressing table with linear probing. A slot is empty while its key offset is -1.
+     */
+    private static class Segment {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final float LOAD_FACTOR = 0.7f;
+
+        private int[] hashes = new int[INITIAL_CAPACITY];
+        private int[] keyOffsets = emptyOffsets(INITIAL_CAPACITY);
+        private int[] keyLengths = new int[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private byte[] keys = new byte[256];
+        private int keysSize;
+        private int size;
+
+        synchronized void add(final byte[] key, final int length, final int hash, final long amount) {
+            final int slot = findSlot(key, length, hash);
+            if (keyOffsets[slot] >= 0) {
+                values[slot] += amount;
+                return;
+            }
+
+            hashes[slot] = hash;
+            keyOffsets[slot] = storeKey(key, length);
+            keyLengths[slot] = length;
+            values[slot] = amount;
+            if (++size > hashes.length * LOAD_FACTOR) {
+                resize();
+            }
+        }
+
+        synchronized long get(final byte[] key, final int length, final int hash) {
+            final int slot = findSlot(key, length, hash);
+            return keyOffsets[slot] >= 0 ? values[slot] : 0L;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void collectTop(final PriorityQueue<Map.Entry<String, Long>> topEntries, final int count) {
+            for (int slot = 0; slot < keyOffsets.length; slot++) {
+                if (keyOffsets[slot] < 0) {
+                    continue;
+                }
+                if (topEntries.size() < count) {
+                    topEntries.add(entryAt(slot));
+                } else if (values[slot] > topEntries.peek().getValue()) {
+                    topEntries.poll();
+                    topEntries.add(entryAt(slot));
+                }
+            }
+        }
+
+        synchronized void collectAll(final List<Map.Entry<String, Long>> entries) {
+            for (int slot = 0; slot < keyOffsets.length; slot++) {
+                if (keyOffsets[slot] >= 0) {
+                    entries.add(entryAt(slot));
+                }
+            }
+        }
+
+        private Map.Entry<String, Long> entryAt(final int slot) {
+            return new AbstractMap.SimpleImmutableEntry<>(
+                    new String(keys, keyOffsets[slot], keyLengths[slot], StandardCharsets.UTF_8), values[slot]);
+        }
+
+        private int findSlot(final byte[] key, final int length, final int hash) {
+            final int mask = hashes.length - 1;
+            int slot = hash & mask;
+
+            while (keyOffsets[slot] >= 0) {
+                if (hashes[slot] == hash && keyLengths[slot] == length && keyEquals(keyOffsets[slot], key, length)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private boolean keyEquals(final int offset, final byte[] key, final int length) {
+            for (int i = 0; i < length; i++) {
+                if (keys[offset + i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int storeKey(final byte[] key, final int length) {
+            if (keysSize + length > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(keysSize + length, keys.length * 2));
+            }
+            System.arraycopy(key, 0, keys, keysSize, length);
+            keysSize += length;
+            return keysSize - length;
+        }
+
+        private void resize() {
+            final int[] oldHashes = hashes;
+            final int[] oldKeyOffsets = keyOffsets;
+            final int[] oldKeyLengths = keyLengths;
+            final long[] oldValues = values;
+            final int capacity = oldHashes.length * 2;
+            final int mask = capacity - 1;
+
+            hashes = new int[capacity];
+            keyOffsets = emptyOffsets(capacity);
+            keyLengths = new int[capacity];
+            values = new long[capacity];
+
+            for (int oldSlot = 0; oldSlot < oldHashes.length; oldSlot++) {
+                if (oldKeyOffsets[oldSlot] < 0) {
+                    continue;
+                }
+                int slot = oldHashes[oldSlot] & mask;
+                while (keyOffsets[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[oldSlot];
+                keyOffsets[slot] = oldKeyOffsets[oldSlot];
+                keyLengths[slot] = oldKeyLengths[oldSlot];
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+
+        private static int[] emptyOffsets(final int capacity) {
+            int[] offsets = new int[capacity];
+            Arrays.fill(offsets, -1);
+            return offsets;
+        }
+    }
+}
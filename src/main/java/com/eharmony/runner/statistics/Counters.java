@@ -16,29 +16,37 @@
 
 package com.eharmony.runner.statistics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class Counters {
-    private static ConcurrentHashMap<String, AtomicLong> COUNTER_MAP = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String, Counter> COUNTER_MAP = new ConcurrentHashMap<>();
 
     public static void incrementCounter(final String counterName) {
-        AtomicLong count = getCounter(counterName);
-        count.incrementAndGet();
+        counter(counterName).increment();
     }
 
     public static void incrementCounterByValue(final String counterName, final int value) {
-        AtomicLong count = getCounter(counterName);
+        counter(counterName).add(value);
+    }
 
-        count.getAndAdd(value);
+    public static void incrementCounterByValue(final String counterName, final long value) {
+        counter(counterName).add(value);
     }
 
-    private static AtomicLong getCounter(final String counterName) {
-        AtomicLong count = COUNTER_MAP.get(counterName);
+    /**
+     * Resolves a counter once, so hot code paths can increment it without looking it up by name every time. The
+     * handle stays valid for the life of the process, {@link #clearCounters()} only sets it back to zero.
+     */
+    public static Counter counter(final String counterName) {
+        Counter count = COUNTER_MAP.get(counterName);
 
         if (count == null) {
-            count = COUNTER_MAP.putIfAbsent(counterName, new AtomicLong(0));
+            count = COUNTER_MAP.putIfAbsent(counterName, new Counter());
 
             if (count == null) {
                 count = COUNTER_MAP.get(counterName);
@@ -47,11 +55,64 @@ public class Counters {
         return count;
     }
 
+    /**
+     * @return the counter, or null when nothing has been counted under that name
+     */
+    static Counter findCounter(final String counterName) {
+        return COUNTER_MAP.get(counterName);
+    }
+
+    /**
+     * @return a copy of the current counter values. Changing the returned values does not change the counters.
+     * @deprecated use {@link #getCounterHandles()}, which returns the counters themselves
+     */
+    @Deprecated
     public static ConcurrentHashMap<String, AtomicLong> getCounters() {
+        final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        COUNTER_MAP.forEach((counterName, counter) -> counters.put(counterName, new AtomicLong(counter.get())));
+        return counters;
+    }
+
+    /**
+     * @return a copy of the map of counter names to counters. The counters are the live handles, so their values keep
+     * changing as the run counts.
+     */
+    public static Map<String, Counter> getCounterHandles() {
         return new ConcurrentHashMap<>(COUNTER_MAP);
     }
 
+    /**
+     * Sets every counter back to zero. Counters are reset rather than removed, so handles resolved through
+     * {@link #counter(String)}, eg. by a task that is run again, keep counting into the reported values.
+     */
     public static void clearCounters() {
-        COUNTER_MAP.clear();
+        COUNTER_MAP.values().forEach(Counter::reset);
+    }
+
+    /**
+     * Writes the current value of every counter, so it can later be restored with {@link #readSnapshot(DataInput)}.
+     */
+    public static void writeSnapshot(final DataOutput output) throws IOException {
+        final Map<String, Counter> counters = getCounterHandles();
+
+        output.writeInt(counters.size());
+        for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+            output.writeUTF(counter.getKey());
+            output.writeLong(counter.getValue().get());
+        }
+    }
+
+    /**
+     * Sets all counters to the values written by {@link #writeSnapshot(DataOutput)}. Existing counters are reset
+     * rather than replaced, so handles that were already resolved keep counting into the restored values.
+     */
+    public static void readSnapshot(final DataInput input) throws IOException {
+        COUNTER_MAP.values().forEach(Counter::reset);
+
+        final int counterCount = input.readInt();
+        for (int i = 0; i < counterCount; i++) {
+            final String counterName = input.readUTF();
+            counter(counterName).add(input.readLong());
+        }
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.statistics;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A family of counters sharing one name, keyed by an arbitrary string such as a word or an id. Implementations are
+ * built for tables with millions of distinct keys and are safe to update from many threads.
+ */
+public interface KeyedCounterTable {
+    default void increment(String key) {
+        add(key, 1L);
+    }
+
+    void add(String key, long amount);
+
+    /**
+     * @return the count for the key, or an estimate of it for approximate tables
+     */
+    long get(String key);
+
+    /**
+     * @return the number of distinct keys held by the table
+     */
+    long size();
+
+    /**
+     * @return true when counts are estimates and only the heaviest keys are retained
+     */
+    boolean isApproximate();
+
+    /**
+     * @return up to {@code count} entries with the highest counts, highest first
+     */
+    List<Map.Entry<String, Long>> getTopEntries(int count);
+
+    /**
+     * @return every entry held by the table, sorted by key
+     */
+    List<Map.Entry<String, Long>> getEntries();
+
+    void writeTo(DataOutput output) throws IOException;
+}
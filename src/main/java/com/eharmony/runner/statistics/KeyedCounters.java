@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named tables of counters keyed by high cardinality values, such as one count per distinct word. Unlike
+ * {@link Counters}, each table is stored compactly and reports can be limited to its heaviest keys.
+ */
+public class KeyedCounters {
+    public static final String RUNNER_KEYED_COUNTERS_TOP = "runner.keyed.counters.top";
+    public static final String RUNNER_KEYED_COUNTERS_APPROXIMATE = "runner.keyed.counters.approximate";
+    public static final String RUNNER_KEYED_COUNTERS_APPROXIMATE_CAPACITY =
+            "runner.keyed.counters.approximate.capacity";
+    public static final int DEFAULT_APPROXIMATE_CAPACITY = 10000;
+    private static final String ALL_TABLES = "*";
+    private static final byte COMPACT_TABLE = 0;
+    private static final byte TOP_K_TABLE = 1;
+    private static ConcurrentHashMap<String, KeyedCounterTable> TABLE_MAP = new ConcurrentHashMap<>();
+    private static volatile Set<String> APPROXIMATE_TABLES = Collections.emptySet();
+    private static volatile int APPROXIMATE_CAPACITY = DEFAULT_APPROXIMATE_CAPACITY;
+    private static volatile int REPORT_SIZE = 0;
+
+    /**
+     * Reads how keyed counter tables are stored and reported. {@code runner.keyed.counters.approximate} is a comma
+     * separated list of table names, or * for all of them, that only keep their heaviest keys. Only tables created
+     * afterwards are affected. {@code runner.keyed.counters.top} limits reports to that many keys per table.
+     */
+    public static void configure(final Properties properties) {
+        Set<String> approximateTables = new HashSet<>();
+        for (String tableName : properties.getProperty(RUNNER_KEYED_COUNTERS_APPROXIMATE, "").split(",")) {
+            if (!tableName.trim().isEmpty()) {
+                approximateTables.add(tableName.trim());
+            }
+        }
+        APPROXIMATE_TABLES = approximateTables;
+        APPROXIMATE_CAPACITY = Integer.parseInt(properties.getProperty(RUNNER_KEYED_COUNTERS_APPROXIMATE_CAPACITY,
+                Integer.toString(DEFAULT_APPROXIMATE_CAPACITY)));
+        REPORT_SIZE = Integer.parseInt(properties.getProperty(RUNNER_KEYED_COUNTERS_TOP, "0"));
+    }
+
+    public static void increment(final String tableName, final String key) {
+        table(tableName).add(key, 1L);
+    }
+
+    public static void incrementByValue(final String tableName, final String key, final long value) {
+        table(tableName).add(key, value);
+    }
+
+    /**
+     * Resolves a table once, so hot code paths can update it without looking it up by name every time. The handle
+     * stays valid until {@link #clearTables()} or {@link #readSnapshot(DataInput)} is called.
+     */
+    public static KeyedCounterTable table(final String tableName) {
+        KeyedCounterTable table = TABLE_MAP.get(tableName);
+
+        if (table == null) {
+            table = TABLE_MAP.putIfAbsent(tableName, newTable(tableName));
+
+            if (table == null) {
+                table = TABLE_MAP.get(tableName);
+            }
+        }
+        return table;
+    }
+
+    public static Map<String, KeyedCounterTable> getTables() {
+        return new HashMap<>(TABLE_MAP);
+    }
+
+    /**
+     * @return the number of keys to report per table, or 0 to report every key
+     */
+    public static int getReportSize() {
+        return REPORT_SIZE;
+    }
+
+    /**
+     * @return the entries of the table that belong in a report, either its heaviest keys or all keys by name
+     */
+    public static List<Map.Entry<String, Long>> getReportEntries(final KeyedCounterTable table) {
+        return REPORT_SIZE > 0 ? table.getTopEntries(REPORT_SIZE) : table.getEntries();
+    }
+
+    public static void clearTables() {
+        TABLE_MAP.clear();
+    }
+
+    /**
+     * Writes every table, so it can later be restored with {@link #readSnapshot(DataInput)}.
+     */
+    public static void writeSnapshot(final DataOutput output) throws IOException {
+        final Map<String, KeyedCounterTable> tables = getTables();
+
+        output.writeInt(tables.size());
+        for (Map.Entry<String, KeyedCounterTable> table : tables.entrySet()) {
+            output.writeUTF(table.getKey());
+            output.writeByte(table.getValue().isApproximate() ? TOP_K_TABLE : COMPACT_TABLE);
+            table.getValue().writeTo(output);
+        }
+    }
+
+    /**
+     * Replaces all tables with the ones written by {@link #writeSnapshot(DataOutput)}.
+     */
+    public static void readSnapshot(final DataInput input) throws IOException {
+        TABLE_MAP.clear();
+
+        final int tableCount = input.readInt();
+        for (int i = 0; i < tableCount; i++) {
+            final String tableName = input.readUTF();
+            final KeyedCounterTable table = input.readByte() == TOP_K_TABLE
+                    ? TopKCounterTable.readFrom(input)
+                    : CompactCounterTable.readFrom(input);
+            TABLE_MAP.put(tableName, table);
+        }
+    }
+
+    private static KeyedCounterTable newTable(final String tableName) {
+        if (APPROXIMATE_TABLES.contains(ALL_TABLES) || APPROXIMATE_TABLES.contains(tableName)) {
+            return new TopKCounterTable(APPROXIMATE_CAPACITY);
+        }
+        return new CompactCounterTable();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Fixed size quantile sketch with a relative accuracy guarantee. Values are counted in logarithmically sized buckets,
+ * so any quantile is estimated within {@code accuracy} of the true value, however many values are added. The bucket
+ * arrays are sized up front to cover the whole {@code long} range, which for the default accuracy of 1% is a little
+ * over 2,000 buckets per sign.
+ */
+public class QuantileSketch {
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final long[] positiveCounts;
+    private final long[] negativeCounts;
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch(final double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new IllegalArgumentException("Sketch accuracy must be between 0 and 1");
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+
+        final int bucketCount = bucketIndex(Long.MAX_VALUE) + 1;
+        this.positiveCounts = new long[bucketCount];
+        this.negativeCounts = new long[bucketCount];
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void add(final long value) {
+        if (value > 0) {
+            positiveCounts[bucketIndex(value)]++;
+        } else if (value < 0) {
+            negativeCounts[bucketIndex(value == Long.MIN_VALUE ? Long.MAX_VALUE : -value)]++;
+        } else {
+            zeroCount++;
+        }
+        count++;
+    }
+
+    /**
+     * Adds every value counted by another sketch with the same accuracy to this one.
+     */
+    public void merge(final QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracies");
+        }
+        for (int i = 0; i < positiveCounts.length; i++) {
+            positiveCounts[i] += other.positiveCounts[i];
+            negativeCounts[i] += other.negativeCounts[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    /**
+     * @param quantile a value between 0 and 1, eg. 0.99 for the 99th percentile
+     * @return the estimated value at the quantile, or 0 when the sketch is empty
+     */
+    public double getQuantile(final double quantile) {
+        if (count == 0) {
+            return 0d;
+        }
+
+        final long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+
+        for (int i = negativeCounts.length - 1; i >= 0; i--) {
+            seen += negativeCounts[i];
+            if (seen > rank) {
+                return -bucketValue(i);
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0d;
+        }
+        for (int i = 0; i < positiveCounts.length; i++) {
+            seen += positiveCounts[i];
+            if (seen > rank) {
+                return bucketValue(i);
+            }
+        }
+        return bucketValue(positiveCounts.length - 1);
+    }
+
+    /**
+     * @return the representative value of the most populated bucket, an approximation of the mode
+     */
+    public long getMode() {
+        long modeCount = zeroCount;
+        double modeValue = 0d;
+
+        for (int i = 0; i < positiveCounts.length; i++) {
+            if (positiveCounts[i] > modeCount) {
+                modeCount = positiveCounts[i];
+                modeValue = bucketValue(i);
+            }
+            if (negativeCounts[i] > modeCount) {
+                modeCount = negativeCounts[i];
+                modeValue = -bucketValue(i);
+            }
+        }
+        return Math.round(modeValue);
+    }
+
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeDouble(accuracy);
+        output.writeLong(zeroCount);
+        writeBuckets(output, positiveCounts);
+        writeBuckets(output, negativeCounts);
+    }
+
+    public static QuantileSketch readFrom(final DataInput input) throws IOException {
+        final QuantileSketch sketch = new QuantileSketch(input.readDouble());
+        sketch.zeroCount = input.readLong();
+        sketch.count = sketch.zeroCount
+                + readBuckets(input, sketch.positiveCounts)
+                + readBuckets(input, sketch.negativeCounts);
+        return sketch;
+    }
+
+    private int bucketIndex(final long absoluteValue) {
+        return (int) Math.ceil(Math.log(absoluteValue) / logGamma);
+    }
+
+    private double bucketValue(final int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private static void writeBuckets(final DataOutput output, final long[] counts) throws IOException {
+        int usedBuckets = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount > 0) {
+                usedBuckets++;
+            }
+        }
+
+        output.writeInt(usedBuckets);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                output.writeInt(i);
+                output.writeLong(counts[i]);
+            }
+        }
+    }
+
+    private static long readBuckets(final DataInput input, final long[] counts) throws IOException {
+        long total = 0;
+        final int usedBuckets = input.readInt();
+        for (int i = 0; i < usedBuckets; i++) {
+            final int index = input.readInt();
+            counts[index] = input.readLong();
+            total += counts[index];
+        }
+        return total;
+    }
+}
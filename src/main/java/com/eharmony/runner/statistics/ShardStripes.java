@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Fixed number of shards that threads add to, picked by a hash of the thread id. Unlike a shard per thread this
+ * stays bounded when every batch runs on a new thread, and threads only share a shard when their ids collide.
+ * Shards are created on first use.
+ */
+final class ShardStripes<S> {
+    static final int STRIPE_COUNT = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicReferenceArray<S> stripes = new AtomicReferenceArray<>(STRIPE_COUNT);
+    private final Supplier<S> shardFactory;
+
+    ShardStripes(final Supplier<S> shardFactory) {
+        this.shardFactory = shardFactory;
+    }
+
+    /**
+     * @return the shard of the current thread
+     */
+    S get() {
+        final int index = index(Thread.currentThread().getId());
+        S shard = stripes.get(index);
+        if (shard == null) {
+            stripes.compareAndSet(index, null, shardFactory.get());
+            shard = stripes.get(index);
+        }
+        return shard;
+    }
+
+    /**
+     * @return the shards created so far
+     */
+    List<S> getShards() {
+        final List<S> shards = new ArrayList<>(STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            final S shard = stripes.get(i);
+            if (shard != null) {
+                shards.add(shard);
+            }
+        }
+        return shards;
+    }
+
+    private static int index(final long threadId) {
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPE_COUNT - 1);
+    }
+
+    /**
+     * Two stripes per processor, rounded up to a power of two and capped at 64.
+     */
+    private static int stripeCount(final int processors) {
+        final int stripes = Math.max(2, Math.min(64, processors * 2));
+        return Integer.highestOneBit(stripes - 1) << 1;
+    }
+}
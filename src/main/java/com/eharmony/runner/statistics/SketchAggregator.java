@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Aggregator that keeps a fixed size {@link QuantileSketch} instead of every value. Mean, min and max are exact;
+ * median, mode and percentiles are estimates within the sketch's relative accuracy. As with
+ * {@link Aggregators.ExactAggregator}, threads add to one of a fixed number of shards and shards are merged when
+ * read.
+ */
+public class SketchAggregator implements Aggregators.Aggregator {
+    private final double accuracy;
+    private final ShardStripes<SketchShard> shards;
+    private SketchShard merged;
+
+    public SketchAggregator(final double accuracy) {
+        this.accuracy = accuracy;
+        this.shards = new ShardStripes<>(() -> new SketchShard(accuracy));
+        this.merged = new SketchShard(accuracy);
+    }
+
+    @Override
+    public void add(final long value) {
+        shards.get().add(value);
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (SketchShard shard : shards.getShards()) {
+            count += shard.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized Double getMean() {
+        final SketchShard values = merge();
+        return values.sum / ((1d) * values.sketch.getCount());
+    }
+
+    @Override
+    public Double getMedian() {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public synchronized Long getMode() {
+        return merge().sketch.getMode();
+    }
+
+    @Override
+    public synchronized Long getMin() {
+        final SketchShard values = merge();
+        return values.sketch.getCount() == 0 ? null : values.min;
+    }
+
+    @Override
+    public synchronized Long getMax() {
+        final SketchShard values = merge();
+        return values.sketch.getCount() == 0 ? null : values.max;
+    }
+
+    @Override
+    public synchronized Double getPercentile(final double quantile) {
+        final SketchShard values = merge();
+        if (values.sketch.getCount() == 0) {
+            return 0d;
+        }
+        return Math.max(values.min, Math.min(values.max, values.sketch.getQuantile(quantile)));
+    }
+
+    @Override
+    public synchronized void writeValues(final DataOutput output) throws IOException {
+        final SketchShard values = merge();
+        output.writeLong(values.min);
+        output.writeLong(values.max);
+        output.writeLong(values.sum);
+        values.sketch.writeTo(output);
+    }
+
+    static SketchAggregator readValues(final DataInput input) throws IOException {
+        final long min = input.readLong();
+        final long max = input.readLong();
+        final long sum = input.readLong();
+        final QuantileSketch sketch = QuantileSketch.readFrom(input);
+
+        final SketchAggregator aggregator = new SketchAggregator(sketch.getAccuracy());
+        aggregator.shards.get().restore(min, max, sum, sketch);
+        return aggregator;
+    }
+
+    private SketchShard merge() {
+        if (getCount() != merged.getCount()) {
+            SketchShard values = new SketchShard(accuracy);
+            for (SketchShard shard : shards.getShards()) {
+                values.merge(shard);
+            }
+            merged = values;
+        }
+        return merged;
+    }
+
+    /**
+     * Sketch and exact min, max and sum of the values added by the threads hashed to one stripe.
+     */
+    private static class SketchShard {
+        private final QuantileSketch sketch;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private long sum = 0L;
+
+        SketchShard(final double accuracy) {
+            this.sketch = new QuantileSketch(accuracy);
+        }
+
+        synchronized void add(final long value) {
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            sketch.add(value);
+            sum += value;
+        }
+
+        synchronized long getCount() {
+            return sketch.getCount();
+        }
+
+        synchronized void restore(final long min, final long max, final long sum, final QuantileSketch sketch) {
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.sketch.merge(sketch);
+        }
+
+        void merge(final SketchShard other) {
+            synchronized (other) {
+                min = Math.min(min, other.min);
+                max = Math.max(max, other.max);
+                sum += other.sum;
+                sketch.merge(other.sketch);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.statistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Exposes {@link Counters} and {@link Aggregators} over JMX as {@code com.eharmony.runner:type=Counters} and
+ * {@code com.eharmony.runner:type=Aggregators}, with one attribute per counter or aggregator. The attributes are read
+ * from the live statistics each time, so they follow a run as it progresses. The median, mode and percentiles of an
+ * exact aggregator sort all of its values the first time after new values arrive, so polling large exact aggregators
+ * often is not free.
+ */
+public final class StatisticsMBeans {
+    public static final String COUNTERS_OBJECT_NAME = "com.eharmony.runner:type=Counters";
+    public static final String AGGREGATORS_OBJECT_NAME = "com.eharmony.runner:type=Aggregators";
+    private static final Logger LOG = LoggerFactory.getLogger(StatisticsMBeans.class);
+    private static final String[] AGGREGATE_ITEMS =
+            {"count", "mean", "median", "mode", "min", "max", "p90", "p99", "p999"};
+    private static final OpenType<?>[] AGGREGATE_ITEM_TYPES = {SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE,
+            SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE};
+    private static final CompositeType AGGREGATE_TYPE = createAggregateType();
+
+    private StatisticsMBeans() {
+    }
+
+    /**
+     * Registers both MBeans with the platform MBean server, unless they already are.
+     */
+    public static synchronized void register() {
+        register(COUNTERS_OBJECT_NAME, new CountersMBean());
+        register(AGGREGATORS_OBJECT_NAME, new AggregatorsMBean());
+    }
+
+    private static void register(final String objectName, final DynamicMBean mbean) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (Exception ex) {
+            LOG.warn("Unable to register " + objectName + " with JMX", ex);
+        }
+    }
+
+    private static CompositeType createAggregateType() {
+        try {
+            return new CompositeType("Aggregate", "Statistics of an aggregator", AGGREGATE_ITEMS, AGGREGATE_ITEMS,
+                    AGGREGATE_ITEM_TYPES);
+        } catch (OpenDataException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Attributes that can only be read, whose names are only known once the statistics exist.
+     */
+    private abstract static class ReadOnlyStatisticsMBean implements DynamicMBean {
+        abstract Iterable<String> getNames();
+
+        abstract MBeanAttributeInfo getAttributeInfo(String name);
+
+        /**
+         * @return the value, or null when there is no statistic of that name
+         */
+        abstract Object getValue(String name);
+
+        @Override
+        public Object getAttribute(final String name) throws AttributeNotFoundException {
+            final Object value = getValue(name);
+            if (value == null) {
+                throw new AttributeNotFoundException(name);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(final String[] names) {
+            final AttributeList attributes = new AttributeList();
+            for (String name : names) {
+                final Object value = getValue(name);
+                if (value != null) {
+                    attributes.add(new Attribute(name, value));
+                }
+            }
+            return attributes;
+        }
+
+        @Override
+        public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read only");
+        }
+
+        @Override
+        public AttributeList setAttributes(final AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : getNames()) {
+                attributes.add(getAttributeInfo(name));
+            }
+            return new MBeanInfo(getClass().getName(), null, attributes.toArray(new MBeanAttributeInfo[0]),
+                    null, null, null);
+        }
+    }
+
+    private static class CountersMBean extends ReadOnlyStatisticsMBean {
+        @Override
+        Iterable<String> getNames() {
+            return new TreeSet<>(Counters.getCounterHandles().keySet());
+        }
+
+        @Override
+        MBeanAttributeInfo getAttributeInfo(final String name) {
+            return new MBeanAttributeInfo(name, Long.class.getName(), "Counter " + name, true, false, false);
+        }
+
+        @Override
+        Object getValue(final String name) {
+            final Counter counter = Counters.findCounter(name);
+            return counter != null ? counter.get() : null;
+        }
+    }
+
+    private static class AggregatorsMBean extends ReadOnlyStatisticsMBean {
+        @Override
+        Iterable<String> getNames() {
+            return new TreeSet<>(Aggregators.getAggregators().keySet());
+        }
+
+        @Override
+        MBeanAttributeInfo getAttributeInfo(final String name) {
+            return new MBeanAttributeInfo(name, CompositeData.class.getName(), "Aggregator " + name, true, false,
+                    false);
+        }
+
+        @Override
+        Object getValue(final String name) {
+            final Aggregators.Aggregator aggregator = Aggregators.getAggregators().get(name);
+            if (aggregator == null) {
+                return null;
+            }
+            final Map<String, Object> values = new HashMap<>();
+            final long count = aggregator.getCount();
+            final boolean empty = count == 0;
+            values.put("count", count);
+            values.put("mean", empty ? 0d : aggregator.getMean());
+            values.put("median", empty ? 0d : aggregator.getMedian());
+            values.put("mode", empty ? 0L : aggregator.getMode());
+            values.put("min", empty ? 0L : aggregator.getMin());
+            values.put("max", empty ? 0L : aggregator.getMax());
+            values.put("p90", empty ? 0d : aggregator.getPercentile(0.9));
+            values.put("p99", empty ? 0d : aggregator.getPercentile(0.99));
+            values.put("p999", empty ? 0d : aggregator.getPercentile(0.999));
+            try {
+                return new CompositeDataSupport(AGGREGATE_TYPE, values);
+            } catch (OpenDataException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
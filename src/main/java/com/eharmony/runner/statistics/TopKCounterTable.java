@@ -0,0 +1,303 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate keyed counter table that keeps memory fixed no matter how many distinct keys are seen. Every key is
+ * counted in a Count-Min sketch, and a Space-Saving style set of the {@code capacity} heaviest keys is kept next to
+ * it: a new key replaces the lightest tracked key once its sketch estimate exceeds that key's count. Counts are
+ * upper bounds on the true counts, and keys outside the heaviest set are only available as estimates through
+ * {@link #get(String)}.
+ */
+public class TopKCounterTable implements KeyedCounterTable {
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPE_COUNT = 1 << STRIPE_BITS;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH_FACTOR = 8;
+
+    private final int capacity;
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    public TopKCounterTable(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+
+        final int stripeCapacity = (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT;
+        final int sketchWidth = Integer.highestOneBit(stripeCapacity * SKETCH_WIDTH_FACTOR - 1) << 1;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(stripeCapacity, sketchWidth);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void add(final String key, final long amount) {
+        final int hash = mix(key.hashCode());
+        stripeFor(hash).add(key, hash, amount);
+    }
+
+    @Override
+    public long get(final String key) {
+        final int hash = mix(key.hashCode());
+        return stripeFor(hash).get(key, hash);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isApproximate() {
+        return true;
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getTopEntries(final int count) {
+        final List<Map.Entry<String, Long>> entries = collectEntries();
+        Collections.sort(entries, (thisEntry, thatEntry) -> thatEntry.getValue().compareTo(thisEntry.getValue()));
+        return entries.size() > count ? new ArrayList<>(entries.subList(0, Math.max(count, 0))) : entries;
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getEntries() {
+        final List<Map.Entry<String, Long>> entries = collectEntries();
+        Collections.sort(entries, (thisEntry, thatEntry) -> thisEntry.getKey().compareTo(thatEntry.getKey()));
+        return entries;
+    }
+
+    @Override
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeInt(capacity);
+        for (Stripe stripe : stripes) {
+            stripe.writeTo(output);
+        }
+    }
+
+    static TopKCounterTable readFrom(final DataInput input) throws IOException {
+        final TopKCounterTable table = new TopKCounterTable(input.readInt());
+        for (Stripe stripe : table.stripes) {
+            stripe.readFrom(input);
+        }
+        return table;
+    }
+
+    private List<Map.Entry<String, Long>> collectEntries() {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(entries);
+        }
+        return entries;
+    }
+
+    private Stripe stripeFor(final int hash) {
+        return stripes[hash >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static class TrackedKey {
+        private final String key;
+        private long count;
+        private int heapIndex;
+
+        TrackedKey(final String key, final long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+
+    /**
+     * A sketch and heavy key set covering the keys whose hash falls into this stripe. Tracked keys are held in a min
+     * heap by count, so the lightest one can be replaced in logarithmic time.
+     */
+    private static class Stripe {
+        private final long[][] sketch;
+        private final int sketchMask;
+        private final TrackedKey[] heap;
+        private final Map<String, TrackedKey> trackedKeys;
+        private int heapSize;
+
+        Stripe(final int capacity, final int sketchWidth) {
+            this.sketch = new long[SKETCH_DEPTH][sketchWidth];
+            this.sketchMask = sketchWidth - 1;
+            this.heap = new TrackedKey[capacity];
+            this.trackedKeys = new HashMap<>(capacity * 2);
+        }
+
+        synchronized void add(final String key, final int hash, final long amount) {
+            final long estimate = updateSketch(hash, amount);
+            TrackedKey trackedKey = trackedKeys.get(key);
+
+            if (trackedKey != null) {
+                trackedKey.count = estimate;
+                siftDown(trackedKey.heapIndex);
+            } else if (heapSize < heap.length) {
+                trackedKey = new TrackedKey(key, estimate);
+                trackedKeys.put(key, trackedKey);
+                heap[heapSize] = trackedKey;
+                trackedKey.heapIndex = heapSize++;
+                siftUp(trackedKey.heapIndex);
+            } else if (estimate > heap[0].count) {
+                trackedKeys.remove(heap[0].key);
+                trackedKey = new TrackedKey(key, estimate);
+                trackedKeys.put(key, trackedKey);
+                heap[0] = trackedKey;
+                siftDown(0);
+            }
+        }
+
+        synchronized long get(final String key, final int hash) {
+            final TrackedKey trackedKey = trackedKeys.get(key);
+            if (trackedKey != null) {
+                return trackedKey.count;
+            }
+
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                estimate = Math.min(estimate, sketch[row][sketchIndex(hash, row)]);
+            }
+            return estimate;
+        }
+
+        synchronized int size() {
+            return heapSize;
+        }
+
+        synchronized void collect(final List<Map.Entry<String, Long>> entries) {
+            for (int i = 0; i < heapSize; i++) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(heap[i].key, heap[i].count));
+            }
+        }
+
+        synchronized void writeTo(final DataOutput output) throws IOException {
+            for (long[] row : sketch) {
+                for (long value : row) {
+                    output.writeLong(value);
+                }
+            }
+            output.writeInt(heapSize);
+            for (int i = 0; i < heapSize; i++) {
+                output.writeUTF(heap[i].key);
+                output.writeLong(heap[i].count);
+            }
+        }
+
+        synchronized void readFrom(final DataInput input) throws IOException {
+            for (long[] row : sketch) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = input.readLong();
+                }
+            }
+            final int trackedCount = input.readInt();
+            for (int i = 0; i < trackedCount; i++) {
+                final TrackedKey trackedKey = new TrackedKey(input.readUTF(), input.readLong());
+                trackedKeys.put(trackedKey.key, trackedKey);
+                heap[heapSize] = trackedKey;
+                trackedKey.heapIndex = heapSize++;
+                siftUp(trackedKey.heapIndex);
+            }
+        }
+
+        /**
+         * Adds the amount using conservative update, which only raises the counters that hold the current minimum,
+         * and returns the new estimate for the key.
+         */
+        private long updateSketch(final int hash, final long amount) {
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                estimate = Math.min(estimate, sketch[row][sketchIndex(hash, row)]);
+            }
+            estimate += amount;
+
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                final int index = sketchIndex(hash, row);
+                if (sketch[row][index] < estimate) {
+                    sketch[row][index] = estimate;
+                }
+            }
+            return estimate;
+        }
+
+        private int sketchIndex(final int hash, final int row) {
+            return (hash + row * ((hash >>> 15) | 1) * 0x9E3779B9) & sketchMask;
+        }
+
+        private void siftUp(int index) {
+            final TrackedKey trackedKey = heap[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= trackedKey.count) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(trackedKey, index);
+        }
+
+        private void siftDown(int index) {
+            final TrackedKey trackedKey = heap[index];
+            while (true) {
+                int child = index * 2 + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heap[child + 1].count < heap[child].count) {
+                    child++;
+                }
+                if (heap[child].count >= trackedKey.count) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(trackedKey, index);
+        }
+
+        private void place(final TrackedKey trackedKey, final int index) {
+            heap[index] = trackedKey;
+            trackedKey.heapIndex = index;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+/**
+ * Picks the number of records per batch so that a batch takes roughly a target duration. The time per record is
+ * smoothed over finished batches, and each adjustment at most halves or doubles the size, so a single slow batch does
+ * not swing the size from one bound to the other.
+ */
+class AdaptiveBatchSizer {
+    private static final double SMOOTHING = 0.2;
+    private static final double MAX_STEP = 2.0;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetBatchNanos;
+    private volatile int batchSize;
+    private double averageNanosPerRecord = -1;
+
+    AdaptiveBatchSizer(final int initialBatchSize, final int minBatchSize, final int maxBatchSize,
+                       final long targetBatchNanos) {
+        if (minBatchSize > maxBatchSize) {
+            throw new IllegalArgumentException("Minimum batch size " + minBatchSize
+                    + " is larger than maximum batch size " + maxBatchSize);
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetBatchNanos = targetBatchNanos;
+        this.batchSize = clamp(initialBatchSize);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    synchronized void record(final long recordCount, final long elapsedNanos) {
+        if (recordCount == 0) {
+            return;
+        }
+
+        final double nanosPerRecord = (double) elapsedNanos / recordCount;
+        averageNanosPerRecord = averageNanosPerRecord < 0
+                ? nanosPerRecord
+                : averageNanosPerRecord + SMOOTHING * (nanosPerRecord - averageNanosPerRecord);
+
+        final double idealSize = targetBatchNanos / Math.max(averageNanosPerRecord, 1.0);
+        final double steppedSize = Math.max(batchSize / MAX_STEP, Math.min(batchSize * MAX_STEP, idealSize));
+        batchSize = clamp((long) steppedSize);
+    }
+
+    private int clamp(final long size) {
+        return (int) Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.Properties;
+
+/**
+ * Additive increase, multiplicative decrease, as in TCP congestion control. Until the first slow or failed batch the
+ * limit grows by one for every batch that succeeds within the latency tolerance, afterwards by one for every full
+ * limit's worth of such batches. A batch that fails or is slower than the tolerance allows cuts the limit by the
+ * backoff ratio, at most once per limit's worth of batches, so the batches that were already in flight when the
+ * service slowed down do not cut it again. Latency is compared per record against the fastest latency seen recently,
+ * so it is not thrown off by batches of different sizes.
+ */
+public class AimdConcurrencyLimit implements ConcurrencyLimit {
+    public static final String RUNNER_LIMITER_MIN = "runner.task.limiter.min";
+    public static final String RUNNER_LIMITER_INITIAL = "runner.task.limiter.initial";
+    public static final String RUNNER_LIMITER_BACKOFF = "runner.task.limiter.backoff";
+    public static final String RUNNER_LIMITER_LATENCY_TOLERANCE = "runner.task.limiter.latency.tolerance";
+    private static final double DEFAULT_BACKOFF = 0.9;
+    private static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 0.001;
+
+    private int minLimit;
+    private int maxLimit;
+    private double backoffRatio;
+    private double latencyTolerance;
+    private double limit;
+    private double baselineNanosPerRecord = -1;
+    private boolean congested;
+    private int batchesUntilNextBackoff;
+
+    @Override
+    public void init(final int maxLimit, final Properties properties) {
+        this.maxLimit = maxLimit;
+        this.minLimit = Math.min(maxLimit, Integer.parseInt(properties.getProperty(RUNNER_LIMITER_MIN, "1")));
+        this.limit = Math.max(minLimit, Math.min(maxLimit,
+                Integer.parseInt(properties.getProperty(RUNNER_LIMITER_INITIAL, Integer.toString(minLimit)))));
+        this.backoffRatio = Double.parseDouble(properties.getProperty(RUNNER_LIMITER_BACKOFF,
+                Double.toString(DEFAULT_BACKOFF)));
+        this.latencyTolerance = Double.parseDouble(properties.getProperty(RUNNER_LIMITER_LATENCY_TOLERANCE,
+                Double.toString(DEFAULT_LATENCY_TOLERANCE)));
+
+        if (minLimit <= 0) {
+            throw new IllegalArgumentException(RUNNER_LIMITER_MIN + " must be greater than zero");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException(RUNNER_LIMITER_BACKOFF + " must be between 0 and 1");
+        }
+        if (latencyTolerance < 1) {
+            throw new IllegalArgumentException(RUNNER_LIMITER_LATENCY_TOLERANCE + " must be at least 1");
+        }
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized void onBatchComplete(final long recordCount, final long elapsedNanos,
+                                             final boolean succeeded) {
+        final double nanosPerRecord = (double) elapsedNanos / Math.max(recordCount, 1);
+
+        // The baseline creeps upwards, so a service that settles at a slower speed is eventually accepted as normal
+        baselineNanosPerRecord = baselineNanosPerRecord < 0
+                ? nanosPerRecord
+                : Math.min(baselineNanosPerRecord * (1 + BASELINE_DRIFT), nanosPerRecord);
+
+        if (!succeeded || nanosPerRecord > baselineNanosPerRecord * latencyTolerance) {
+            if (batchesUntilNextBackoff <= 0) {
+                batchesUntilNextBackoff = (int) limit;
+                limit = Math.max(minLimit, limit * backoffRatio);
+                congested = true;
+            }
+        } else {
+            limit = Math.min(maxLimit, limit + (congested ? 1 / limit : 1));
+        }
+        batchesUntilNextBackoff--;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.RunnerContext;
+
+import java.util.Collection;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A task that starts its work and returns without waiting for it, typically by calling a non-blocking HTTP or
+ * database client. The runner only holds a worker thread while the batch is parsed and the work is started, and limits
+ * the number of outstanding batches with {@code runner.task.max.inflight} instead.
+ */
+public interface AsyncTask<I, C extends RunnerContext> extends Task<I, C> {
+    CompletionStage<Boolean> executeTaskAsync(Collection<I> input, C runnerContext);
+
+    @Override
+    default boolean executeTask(final Collection<I> input, final C runnerContext) {
+        return executeTaskAsync(input, runnerContext).toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.Counters;
+import com.eharmony.runner.statistics.KeyedCounters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Durable record of how far a run has progressed through its input, together with the {@link Counters} and
+ * {@link Aggregators} state at that point, so an interrupted run can be resumed without reprocessing its input.
+ */
+public class Checkpoint {
+    private static final int CHECKPOINT_MAGIC = 0x43484B50;
+    private static final int CHECKPOINT_VERSION = 3;
+
+    private final String inputFile;
+    private final long nextRecord;
+    private final long remainingRecords;
+
+    private Checkpoint(final String inputFile, final long nextRecord, final long remainingRecords) {
+        this.inputFile = inputFile;
+        this.nextRecord = nextRecord;
+        this.remainingRecords = remainingRecords;
+    }
+
+    /**
+     * @return the input file the checkpointed run was reading
+     */
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    /**
+     * @return the zero based record of the input file to resume from
+     */
+    public long getNextRecord() {
+        return nextRecord;
+    }
+
+    /**
+     * @return the number of records the checkpointed run still had to process
+     */
+    public long getRemainingRecords() {
+        return remainingRecords;
+    }
+
+    /**
+     * Writes the checkpoint along with a snapshot of the current statistics. The file is written next to the target
+     * and then moved into place, so a crash while writing never leaves a truncated checkpoint behind.
+     */
+    public static void write(final File checkpointFile,
+                             final String inputFile,
+                             final long nextRecord,
+                             final long remainingRecords) throws IOException {
+        final File parent = checkpointFile.getAbsoluteFile().getParentFile();
+        final File tempFile = new File(parent, checkpointFile.getName() + ".tmp");
+
+        try (DataOutputStream output =
+                     new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeInt(CHECKPOINT_VERSION);
+            output.writeUTF(inputFile);
+            output.writeLong(nextRecord);
+            output.writeLong(remainingRecords);
+            Counters.writeSnapshot(output);
+            Aggregators.writeSnapshot(output);
+            KeyedCounters.writeSnapshot(output);
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint and restores the {@link Counters}, {@link Aggregators} and {@link KeyedCounters} state stored in it.
+     */
+    public static Checkpoint restore(final File checkpointFile) throws IOException {
+        if (!checkpointFile.isFile()) {
+            throw new FileNotFoundException("No checkpoint found at " + checkpointFile);
+        }
+
+        try (DataInputStream input =
+                     new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != CHECKPOINT_VERSION) {
+                throw new IOException(checkpointFile + " is not a checkpoint written by this version");
+            }
+
+            final Checkpoint checkpoint = new Checkpoint(input.readUTF(), input.readLong(), input.readLong());
+            Counters.readSnapshot(input);
+            Aggregators.readSnapshot(input);
+            KeyedCounters.readSnapshot(input);
+            return checkpoint;
+        }
+    }
+}
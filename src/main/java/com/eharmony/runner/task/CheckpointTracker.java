@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks how many input records have been completed without gaps. Batches are numbered in the order they were read,
+ * but complete in any order, so a batch only counts towards the contiguous progress once every batch before it has
+ * completed as well.
+ */
+class CheckpointTracker {
+    private final Map<Long, Long> completedOutOfOrder = new HashMap<>();
+    private long nextBatch;
+    private long completedRecords;
+
+    synchronized void complete(final long batchNumber, final long recordCount) {
+        if (batchNumber != nextBatch) {
+            completedOutOfOrder.put(batchNumber, recordCount);
+            return;
+        }
+
+        completedRecords += recordCount;
+        nextBatch++;
+
+        Long pendingRecords;
+        while ((pendingRecords = completedOutOfOrder.remove(nextBatch)) != null) {
+            completedRecords += pendingRecords;
+            nextBatch++;
+        }
+    }
+
+    /**
+     * @return the number of records in the longest run of completed batches starting from the first batch
+     */
+    synchronized long getCompletedRecords() {
+        return completedRecords;
+    }
+
+    /**
+     * @return the number of batches completed without gaps
+     */
+    synchronized long getCompletedBatches() {
+        return nextBatch;
+    }
+}
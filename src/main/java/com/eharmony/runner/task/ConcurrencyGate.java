@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits batches while fewer are in flight than the current {@link ConcurrencyLimit} allows. Unlike a semaphore the
+ * number of permits follows the limit as it changes during the run.
+ */
+class ConcurrencyGate {
+    private final ConcurrencyLimit concurrencyLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchFinished = lock.newCondition();
+    private int inFlight;
+
+    ConcurrencyGate(final ConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= Math.max(concurrencyLimit.getLimit(), 1)) {
+                batchFinished.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            batchFinished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every admitted batch has been released.
+     */
+    void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight > 0) {
+                batchFinished.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.Properties;
+
+/**
+ * Decides how many batches may be in flight at once. The runner asks for the limit before dispatching each batch and
+ * reports every finished batch back, so an implementation can raise or lower the limit as the downstream services
+ * the task calls speed up or slow down. Implementations are chosen with {@code runner.task.limiter} and need a
+ * public no argument constructor.
+ */
+public interface ConcurrencyLimit {
+    /**
+     * @param maxLimit the most batches that may ever be in flight, from {@code runner.task.max.inflight}
+     * @param properties the runner properties, for implementation specific settings
+     */
+    void init(int maxLimit, Properties properties);
+
+    int getLimit();
+
+    /**
+     * @param recordCount the number of records in the batch
+     * @param elapsedNanos how long the batch took to execute
+     * @param succeeded false when the task returned false or threw an exception
+     */
+    void onBatchComplete(long recordCount, long elapsedNanos, boolean succeeded);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.Properties;
+
+/**
+ * Always allows the maximum number of batches in flight. This is the default limit.
+ */
+public class FixedConcurrencyLimit implements ConcurrencyLimit {
+    private int limit;
+
+    @Override
+    public void init(final int maxLimit, final Properties properties) {
+        this.limit = maxLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void onBatchComplete(final long recordCount, final long elapsedNanos, final boolean succeeded) {
+        // The limit never changes
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.input.BinaryInputFile;
+import com.eharmony.runner.input.BinaryRecordReader;
+import com.eharmony.runner.input.ByteLineReader;
+import com.eharmony.runner.input.IntLineParser;
+import com.eharmony.runner.input.LineParser;
+import com.eharmony.runner.input.LongLineParser;
+import com.eharmony.runner.input.MalformedRecordException;
+import com.eharmony.runner.input.RecordReader;
+import com.eharmony.runner.statistics.KeyedCounters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads one of several input files. The file is only opened once it is first read and is closed as soon as it is
+ * exhausted, so hundreds of files can be queued without holding their handles open. The number of records read from
+ * each file is added to the {@value #RECORDS_TABLE} keyed counter table.
+ */
+class InputFileReader<I> implements RecordReader<I> {
+    static final String RECORDS_TABLE = "INPUT_FILE_RECORDS";
+    private static final Logger LOG = LoggerFactory.getLogger(InputFileReader.class);
+
+    private final File file;
+    private final LineParser<I> parser;
+    private final long skipSize;
+    private final long processSize;
+    private final AtomicInteger finishedFiles;
+    private final int totalFiles;
+    private RecordReader<I> reader;
+    private long recordsRead;
+    private boolean exhausted;
+
+    /**
+     * @param finishedFiles shared by the readers of all files, to report overall progress
+     */
+    InputFileReader(final File file, final LineParser<I> parser, final long skipSize, final long processSize,
+                    final AtomicInteger finishedFiles, final int totalFiles) {
+        this.file = file;
+        this.parser = parser;
+        this.skipSize = skipSize;
+        this.processSize = processSize;
+        this.finishedFiles = finishedFiles;
+        this.totalFiles = totalFiles;
+    }
+
+    @Override
+    public I parseNextInputLine() throws Exception {
+        if (!open()) {
+            return null;
+        }
+
+        final I record;
+        try {
+            record = reader.parseNextInputLine();
+        } catch (MalformedRecordException ex) {
+            recordsRead++;
+            throw ex;
+        }
+        if (record == null) {
+            finish();
+        } else {
+            recordsRead++;
+        }
+        return record;
+    }
+
+    @Override
+    public String readNextLine() throws Exception {
+        if (!open()) {
+            return null;
+        }
+
+        final String line = reader.readNextLine();
+        if (line == null) {
+            finish();
+        } else {
+            recordsRead++;
+        }
+        return line;
+    }
+
+    @Override
+    public int readInts(final IntLineParser intParser, final int[] values, final int length) throws Exception {
+        if (!open()) {
+            return 0;
+        }
+        return count(reader.readInts(intParser, values, length));
+    }
+
+    @Override
+    public int readLongs(final LongLineParser longParser, final long[] values, final int length) throws Exception {
+        if (!open()) {
+            return 0;
+        }
+        return count(reader.readLongs(longParser, values, length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    /**
+     * @return false once the file is exhausted
+     */
+    private boolean open() throws Exception {
+        if (exhausted) {
+            return false;
+        }
+        if (reader == null) {
+            LOG.info("Reading input file {}", file);
+            reader = BinaryInputFile.isBinary(file)
+                    ? new BinaryRecordReader<>(BinaryInputFile.open(file), parser, skipSize, processSize)
+                    : new ByteLineReader<>(file, parser, skipSize, processSize);
+        }
+        return true;
+    }
+
+    private int count(final int valuesRead) throws Exception {
+        if (valuesRead == 0) {
+            finish();
+        }
+        recordsRead += valuesRead;
+        return valuesRead;
+    }
+
+    private void finish() throws Exception {
+        exhausted = true;
+        close();
+        KeyedCounters.incrementByValue(RECORDS_TABLE, file.getPath(), recordsRead);
+        LOG.info("Finished input file {} with {} records, {} of {} files done", file, recordsRead,
+                finishedFiles.incrementAndGet(), totalFiles);
+    }
+}
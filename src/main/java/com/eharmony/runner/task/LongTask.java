@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.RunnerContext;
+
+import java.util.Collection;
+
+/**
+ * A task over long records that receives each batch as a primitive array. Together with an
+ * {@link com.eharmony.runner.input.LongLineParser} or compiled int32 or int64 input, the runner reads batches straight into
+ * pooled arrays, so no object is created per record. Whenever the runner needs boxed records, such as with a reject
+ * file, batches are passed to {@link #executeTask(Collection, RunnerContext)} instead, which copies them into an array.
+ */
+public interface LongTask<C extends RunnerContext> extends Task<Long, C> {
+    /**
+     * @param values holds the batch in its first {@code length} elements. The array is reused for a later batch once
+     *               this returns, so it must not be kept.
+     */
+    boolean executeLongTask(long[] values, int length, C runnerContext);
+
+    @Override
+    default boolean executeTask(final Collection<Long> input, final C runnerContext) {
+        final long[] values = new long[input.size()];
+        int length = 0;
+        for (Long value : input) {
+            values[length++] = value;
+        }
+        return executeLongTask(values, length, runnerContext);
+    }
+}
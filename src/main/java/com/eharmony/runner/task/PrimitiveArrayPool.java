@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Primitive arrays handed from the reading thread to the workers and back, so batches of primitive records reuse the
+ * same few arrays. Arrays that are too small for the current batch size are dropped and replaced.
+ */
+class PrimitiveArrayPool<A> {
+    private final Queue<A> arrays = new ConcurrentLinkedQueue<>();
+    private final IntFunction<A> factory;
+    private final ToIntFunction<A> lengthOf;
+
+    PrimitiveArrayPool(final IntFunction<A> factory, final ToIntFunction<A> lengthOf) {
+        this.factory = factory;
+        this.lengthOf = lengthOf;
+    }
+
+    A borrow(final int minimumLength) {
+        final A array = arrays.poll();
+        return array != null && lengthOf.applyAsInt(array) >= minimumLength ? array : factory.apply(minimumLength);
+    }
+
+    void release(final A array) {
+        arrays.offer(array);
+    }
+}
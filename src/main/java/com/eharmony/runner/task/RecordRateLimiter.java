@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding up to one second of records. A batch takes as many tokens as it has records, and when the
+ * bucket runs short the dispatcher sleeps until the tokens it borrowed would have been refilled, so the long run rate
+ * never exceeds the ceiling even for batches larger than the bucket.
+ */
+class RecordRateLimiter {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double recordsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    RecordRateLimiter(final double recordsPerSecond) {
+        this.recordsPerSecond = recordsPerSecond;
+        this.tokens = recordsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    void acquire(final long records) throws InterruptedException {
+        final long waitNanos;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            tokens = Math.min(recordsPerSecond, tokens + (now - lastRefillNanos) * recordsPerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = now;
+            tokens -= records;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / recordsPerSecond * NANOS_PER_SECOND);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often a failed batch is run again before it is given up on, and how long to wait in between. The wait doubles
+ * with every attempt.
+ */
+class RetryPolicy {
+    private static final int MAX_BACKOFF_SHIFT = 16;
+    private static volatile ScheduledExecutorService retryScheduler;
+
+    private final int attempts;
+    private final long backoffMillis;
+
+    RetryPolicy(final int attempts, final long backoffMillis) {
+        this.attempts = attempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * @param attempt the number of retries already made
+     */
+    boolean canRetry(final int attempt) {
+        return attempt < attempts;
+    }
+
+    long getBackoffMillis(final int attempt) {
+        return backoffMillis << Math.min(attempt, MAX_BACKOFF_SHIFT);
+    }
+
+    /**
+     * Runs the retry of an asynchronous batch after its backoff, without holding a worker thread while waiting.
+     */
+    void scheduleRetry(final Runnable retry, final int attempt) {
+        getRetryScheduler().schedule(retry, getBackoffMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            synchronized (RetryPolicy.class) {
+                if (retryScheduler == null) {
+                    retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "task-runner-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return retryScheduler;
+    }
+}
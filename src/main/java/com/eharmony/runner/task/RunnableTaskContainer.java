@@ -17,15 +17,38 @@
 package com.eharmony.runner.task;
 
 import com.eharmony.runner.RunnerContext;
+import com.eharmony.runner.file.RejectFileWriter;
+import com.eharmony.runner.input.LineParser;
+import com.eharmony.runner.input.MalformedRecordException;
+import com.eharmony.runner.statistics.Counters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinTask;
 
 public class RunnableTaskContainer<I, C extends RunnerContext> implements Callable<Boolean> {
+    public static final String PARSE_FAILURES_COUNTER = "PARSE_FAILURES";
+    public static final String BATCH_RETRIES_COUNTER = "BATCH_RETRIES";
+    public static final String REJECTED_RECORDS_COUNTER = "REJECTED_RECORDS";
+    private static final Logger LOG = LoggerFactory.getLogger(RunnableTaskContainer.class);
+
     private Collection<I> batchInput;
+    private List<String> rawInput;
+    private LineParser<I> lineParser;
     private C runnerContext;
     private Task<I, C> task;
+    private int splitGrain;
+    private RetryPolicy retryPolicy;
+    private RejectFileWriter rejectWriter;
+    private int inputRecords = -1;
 
     public RunnableTaskContainer(Collection<I> batchInput, C runnerContext, Task<I, C> task) {
         this.runnerContext = Objects.requireNonNull(runnerContext);
@@ -33,8 +56,193 @@ public class RunnableTaskContainer<I, C extends RunnerContext> implements Callab
         this.batchInput = Objects.requireNonNull(batchInput);
     }
 
+    /**
+     * Creates a container for a batch of unparsed lines. The lines are parsed on the worker thread that runs the
+     * container, and lines that fail to parse are counted and left out of the batch handed to the task.
+     */
+    public RunnableTaskContainer(List<String> rawInput, LineParser<I> lineParser, C runnerContext, Task<I, C> task) {
+        this.runnerContext = Objects.requireNonNull(runnerContext);
+        this.task = Objects.requireNonNull(task);
+        this.rawInput = Objects.requireNonNull(rawInput);
+        this.lineParser = Objects.requireNonNull(lineParser);
+    }
+
+    /**
+     * Splits the batch into pieces of at most {@code splitGrain} records when it runs on a fork join pool and the task
+     * is splittable.
+     */
+    void setSplitGrain(final int splitGrain) {
+        this.splitGrain = splitGrain;
+    }
+
+    /**
+     * Runs the batch again when it fails, and once it has failed for good writes its raw lines to the reject file.
+     * Lines that fail to parse are written to the reject file straight away. Only batches created from raw lines can
+     * be rejected.
+     */
+    void setFailureHandling(final RetryPolicy retryPolicy, final RejectFileWriter rejectWriter) {
+        this.retryPolicy = retryPolicy;
+        this.rejectWriter = rejectWriter;
+    }
+
     @Override
     public Boolean call() throws Exception {
+        if (batchInput == null) {
+            batchInput = parseRawInput();
+        }
+
+        int attempt = 0;
+        while (true) {
+            try {
+                final boolean result = executeBatch();
+                if (result || !canRetry(attempt)) {
+                    if (!result) {
+                        reject();
+                    }
+                    return result;
+                }
+            } catch (Exception ex) {
+                if (!canRetry(attempt)) {
+                    reject();
+                    throw ex;
+                }
+                LOG.warn("Batch failed, retrying", ex);
+            }
+            Counters.incrementCounter(BATCH_RETRIES_COUNTER);
+            Thread.sleep(retryPolicy.getBackoffMillis(attempt++));
+        }
+    }
+
+    private boolean executeBatch() {
+        if (splitGrain > 0 && task.isSplittable() && ForkJoinTask.inForkJoinPool()) {
+            @SuppressWarnings("unchecked")
+            final List<I> splittableInput =
+                    batchInput instanceof List ? (List<I>) batchInput : new ArrayList<>(batchInput);
+            return new SplitBatchTask<>(splittableInput, task, runnerContext, splitGrain).invoke();
+        }
         return task.executeTask(batchInput, runnerContext);
     }
+
+    /**
+     * Parses the batch if needed and starts it on an {@link AsyncTask}, returning as soon as the task has started.
+     */
+    CompletionStage<Boolean> callAsync() {
+        if (batchInput == null) {
+            batchInput = parseRawInput();
+        }
+        return executeBatchAsync(0);
+    }
+
+    private CompletionStage<Boolean> executeBatchAsync(final int attempt) {
+        final CompletableFuture<Boolean> batchResult = new CompletableFuture<>();
+        CompletionStage<Boolean> taskResult;
+        try {
+            taskResult = ((AsyncTask<I, C>) task).executeTaskAsync(batchInput, runnerContext);
+        } catch (RuntimeException ex) {
+            final CompletableFuture<Boolean> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(ex);
+            taskResult = failedResult;
+        }
+
+        taskResult.whenComplete((result, failure) -> {
+            if (failure == null && Boolean.TRUE.equals(result)) {
+                batchResult.complete(true);
+            } else if (canRetry(attempt)) {
+                LOG.warn("Batch failed, retrying", failure);
+                Counters.incrementCounter(BATCH_RETRIES_COUNTER);
+                retryPolicy.scheduleRetry(() -> retryBatchAsync(attempt + 1, batchResult), attempt);
+            } else {
+                reject();
+                if (failure != null) {
+                    batchResult.completeExceptionally(failure);
+                } else {
+                    batchResult.complete(false);
+                }
+            }
+        });
+        return batchResult;
+    }
+
+    private void retryBatchAsync(final int attempt, final CompletableFuture<Boolean> batchResult) {
+        executeBatchAsync(attempt).whenComplete((result, failure) -> {
+            if (failure != null) {
+                batchResult.completeExceptionally(failure);
+            } else {
+                batchResult.complete(result);
+            }
+        });
+    }
+
+    private boolean canRetry(final int attempt) {
+        return retryPolicy != null && retryPolicy.canRetry(attempt);
+    }
+
+    private void reject() {
+        if (rejectWriter != null && rawInput != null) {
+            writeRejects(rawInput);
+        }
+    }
+
+    private void writeRejects(final List<String> lines) {
+        try {
+            rejectWriter.writeLines(lines);
+            Counters.incrementCounterByValue(REJECTED_RECORDS_COUNTER, lines.size());
+        } catch (IOException ex) {
+            LOG.error("Unable to write " + lines.size() + " rejected lines to " + rejectWriter.getRejectFile(), ex);
+        }
+    }
+
+    int size() {
+        return batchInput != null ? batchInput.size() : rawInput.size();
+    }
+
+    /**
+     * Sets the number of input lines the batch was read from, when malformed lines were left out of it.
+     */
+    void setInputRecords(final int inputRecords) {
+        this.inputRecords = inputRecords;
+    }
+
+    /**
+     * @return the number of input lines the batch covers, which is what checkpoints count
+     */
+    int getInputRecords() {
+        return inputRecords >= 0 ? inputRecords : size();
+    }
+
+    private List<I> parseRawInput() {
+        List<I> parsedInput = new ArrayList<>(rawInput.size());
+        List<String> parsedLines = rejectWriter != null ? new ArrayList<>(rawInput.size()) : null;
+        List<String> failedLines = rejectWriter != null ? new ArrayList<>() : null;
+        int parseFailures = 0;
+
+        for (String line : rawInput) {
+            try {
+                parsedInput.add(lineParser.parseLine(line));
+                if (parsedLines != null) {
+                    parsedLines.add(line);
+                }
+            } catch (Exception ex) {
+                // Malformed lines are logged by their parser
+                if (parseFailures == 0 && !(ex instanceof MalformedRecordException)) {
+                    LOG.warn("Unable to parse line " + line, ex);
+                }
+                if (failedLines != null) {
+                    failedLines.add(line);
+                }
+                parseFailures++;
+            }
+        }
+
+        if (parseFailures > 0) {
+            LOG.warn("{} of {} lines in batch failed to parse", parseFailures, rawInput.size());
+            Counters.incrementCounterByValue(PARSE_FAILURES_COUNTER, parseFailures);
+            if (failedLines != null) {
+                writeRejects(failedLines);
+            }
+        }
+        // The raw lines are only kept while they may still have to be rejected
+        rawInput = parsedLines;
+        return parsedInput;
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.statistics.SketchAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the {@link RunnerMetricsMBean} figures of a runner. Updates happen once per batch rather than per record
+ * and only touch striped adders and the thread local shards of a {@link SketchAggregator}, which holds the batch
+ * latencies in microseconds, so collecting them costs next to nothing even when they are never read.
+ */
+public class RunnerMetrics implements RunnerMetricsMBean {
+    public static final String OBJECT_NAME = "com.eharmony.runner:type=TaskRunner";
+    private static final Logger LOG = LoggerFactory.getLogger(RunnerMetrics.class);
+    private static final double LATENCY_ACCURACY = 0.01;
+    private static RunnerMetrics registeredMetrics;
+
+    private final AtomicLong batchesSubmitted = new AtomicLong();
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private final LongAdder batchesCompleted = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final LongAdder recordsProcessed = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder executeNanos = new LongAdder();
+    private final LongAdder dispatchWaitNanos = new LongAdder();
+    private volatile SketchAggregator batchLatencyMicros = new SketchAggregator(LATENCY_ACCURACY);
+    private volatile long startNanos = System.nanoTime();
+    private volatile long finishNanos = 0;
+    private volatile int workerThreads = 1;
+
+    /**
+     * Clears the figures of any previous run.
+     */
+    void start(final int threads) {
+        batchesSubmitted.set(0);
+        batchesInFlight.set(0);
+        batchesCompleted.reset();
+        batchesFailed.reset();
+        recordsProcessed.reset();
+        readNanos.reset();
+        executeNanos.reset();
+        dispatchWaitNanos.reset();
+        batchLatencyMicros = new SketchAggregator(LATENCY_ACCURACY);
+        workerThreads = Math.max(threads, 1);
+        finishNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock, so rates keep describing the run once it is over.
+     */
+    void finish() {
+        finishNanos = System.nanoTime();
+    }
+
+    void batchRead(final long nanos) {
+        readNanos.add(nanos);
+    }
+
+    void batchSubmitted() {
+        batchesSubmitted.incrementAndGet();
+        batchesInFlight.incrementAndGet();
+    }
+
+    void batchCompleted(final long recordCount, final long elapsedNanos, final boolean succeeded) {
+        batchesInFlight.decrementAndGet();
+        batchesCompleted.increment();
+        if (!succeeded) {
+            batchesFailed.increment();
+        }
+        recordsProcessed.add(recordCount);
+        executeNanos.add(elapsedNanos);
+        batchLatencyMicros.add(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    void dispatchWaited(final long nanos) {
+        dispatchWaitNanos.add(nanos);
+    }
+
+    /**
+     * Registers these metrics under {@link #OBJECT_NAME}, replacing those of any other runner in this JVM. Failing to
+     * register only costs the JMX view, so it is logged rather than thrown.
+     */
+    void register() {
+        synchronized (RunnerMetrics.class) {
+            try {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                final ObjectName name = new ObjectName(OBJECT_NAME);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(this, name);
+                registeredMetrics = this;
+            } catch (Exception ex) {
+                LOG.warn("Unable to register runner metrics with JMX", ex);
+            }
+        }
+    }
+
+    /**
+     * Removes these metrics from the MBean server, unless another runner has replaced them since.
+     */
+    void unregister() {
+        synchronized (RunnerMetrics.class) {
+            if (registeredMetrics != this) {
+                return;
+            }
+            registeredMetrics = null;
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+            } catch (Exception ex) {
+                LOG.warn("Unable to unregister runner metrics from JMX", ex);
+            }
+        }
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getElapsedNanos());
+    }
+
+    @Override
+    public long getBatchesSubmitted() {
+        return batchesSubmitted.get();
+    }
+
+    @Override
+    public long getBatchesCompleted() {
+        return batchesCompleted.sum();
+    }
+
+    @Override
+    public long getBatchesFailed() {
+        return batchesFailed.sum();
+    }
+
+    @Override
+    public int getBatchesInFlight() {
+        return batchesInFlight.get();
+    }
+
+    @Override
+    public long getRecordsProcessed() {
+        return recordsProcessed.sum();
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        final long elapsedNanos = getElapsedNanos();
+        return elapsedNanos > 0 ? recordsProcessed.sum() * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public double getBatchLatencyMeanMillis() {
+        return batchLatencyMicros.getCount() == 0 ? 0 : batchLatencyMicros.getMean() / 1000;
+    }
+
+    @Override
+    public double getBatchLatencyP50Millis() {
+        return getBatchLatencyMillis(0.5);
+    }
+
+    @Override
+    public double getBatchLatencyP90Millis() {
+        return getBatchLatencyMillis(0.9);
+    }
+
+    @Override
+    public double getBatchLatencyP99Millis() {
+        return getBatchLatencyMillis(0.99);
+    }
+
+    @Override
+    public double getBatchLatencyP999Millis() {
+        return getBatchLatencyMillis(0.999);
+    }
+
+    @Override
+    public double getBatchLatencyMaxMillis() {
+        return batchLatencyMicros.getCount() == 0 ? 0 : batchLatencyMicros.getMax() / 1000d;
+    }
+
+    @Override
+    public long getReadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readNanos.sum());
+    }
+
+    @Override
+    public long getExecuteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executeNanos.sum());
+    }
+
+    @Override
+    public long getDispatchWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(dispatchWaitNanos.sum());
+    }
+
+    @Override
+    public double getWorkerUtilization() {
+        final long elapsedNanos = getElapsedNanos();
+        return elapsedNanos > 0 ? Math.min(1d, executeNanos.sum() / ((double) elapsedNanos * workerThreads)) : 0;
+    }
+
+    private long getElapsedNanos() {
+        final long finish = finishNanos;
+        return (finish != 0 ? finish : System.nanoTime()) - startNanos;
+    }
+
+    private double getBatchLatencyMillis(final double quantile) {
+        return batchLatencyMicros.getCount() == 0 ? 0 : batchLatencyMicros.getPercentile(quantile) / 1000;
+    }
+}
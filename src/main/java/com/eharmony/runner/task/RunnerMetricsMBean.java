@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+/**
+ * Live view of a {@link TaskRunner}'s current or last run, registered with the platform MBean server as
+ * {@code com.eharmony.runner:type=TaskRunner}. Times are totals since the run started unless noted otherwise.
+ */
+public interface RunnerMetricsMBean {
+    long getElapsedMillis();
+
+    long getBatchesSubmitted();
+
+    long getBatchesCompleted();
+
+    /**
+     * @return batches whose task returned false or threw, after any retries
+     */
+    long getBatchesFailed();
+
+    int getBatchesInFlight();
+
+    long getRecordsProcessed();
+
+    double getRecordsPerSecond();
+
+    double getBatchLatencyMeanMillis();
+
+    double getBatchLatencyP50Millis();
+
+    double getBatchLatencyP90Millis();
+
+    double getBatchLatencyP99Millis();
+
+    double getBatchLatencyP999Millis();
+
+    double getBatchLatencyMaxMillis();
+
+    /**
+     * @return time spent reading and parsing batches, summed over the reader threads
+     */
+    long getReadMillis();
+
+    /**
+     * @return time spent executing batches, summed over the worker threads
+     */
+    long getExecuteMillis();
+
+    /**
+     * @return time the dispatching thread spent waiting for batches to finish before it could submit more, such as
+     * in {@code CompletionService.take()}
+     */
+    long getDispatchWaitMillis();
+
+    /**
+     * @return the share of the worker threads' time spent executing batches, between 0 and 1
+     */
+    double getWorkerUtilization();
+}
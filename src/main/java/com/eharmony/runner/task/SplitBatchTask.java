@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import com.eharmony.runner.RunnerContext;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs one batch of a splittable task on a fork join pool. A batch larger than the grain is cut in half, one half is
+ * forked so an idle worker can steal it, and the other half is run in place, until the pieces are no larger than the
+ * grain. The batch succeeds only if every piece does.
+ */
+class SplitBatchTask<I, C extends RunnerContext> extends RecursiveTask<Boolean> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<I> input;
+    private final Task<I, C> task;
+    private final C runnerContext;
+    private final int grain;
+
+    SplitBatchTask(final List<I> input, final Task<I, C> task, final C runnerContext, final int grain) {
+        this.input = input;
+        this.task = task;
+        this.runnerContext = runnerContext;
+        this.grain = grain;
+    }
+
+    @Override
+    protected Boolean compute() {
+        if (input.size() <= grain) {
+            return task.executeTask(input, runnerContext);
+        }
+
+        final int middle = input.size() / 2;
+        final SplitBatchTask<I, C> firstHalf =
+                new SplitBatchTask<>(input.subList(0, middle), task, runnerContext, grain);
+        final SplitBatchTask<I, C> secondHalf =
+                new SplitBatchTask<>(input.subList(middle, input.size()), task, runnerContext, grain);
+
+        firstHalf.fork();
+        final boolean secondResult;
+        try {
+            secondResult = secondHalf.compute();
+        } catch (RuntimeException | Error ex) {
+            // Never leave the first half running unobserved once the batch has failed: drop it if no worker has taken
+            // it yet, or wait for it to finish
+            if (!firstHalf.tryUnfork()) {
+                firstHalf.quietlyJoin();
+            }
+            throw ex;
+        }
+        return firstHalf.join() && secondResult;
+    }
+}
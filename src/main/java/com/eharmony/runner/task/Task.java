@@ -18,14 +18,28 @@ package com.eharmony.runner.task;
 
 import com.eharmony.runner.RunnerContext;
 
-import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
 
 public interface Task<I, C extends RunnerContext> {
     boolean executeTask(Collection<I> input, C runnerContext);
 
+    /**
+     * @return the runner context class this task's class gives to {@link Task}, directly or through a superclass or
+     * an interface such as {@link IntTask}
+     */
     default Class<C> getRunnerContextClass() {
-        return (Class<C>)((ParameterizedType) getClass().getGenericInterfaces()[0]).getActualTypeArguments()[1];
+        @SuppressWarnings("unchecked")
+        final Class<C> runnerContextClass = (Class<C>) TaskTypes.resolveTypeArgument(getClass(), Task.class, 1);
+        return runnerContextClass;
+    }
+
+    /**
+     * Whether {@link #executeTask(Collection, RunnerContext)} gives the same result when a batch is split into smaller
+     * collections and each is executed separately. Splittable tasks let the fork join executor hand parts of a slow
+     * batch to idle threads.
+     */
+    default boolean isSplittable() {
+        return false;
     }
 
     default void postExecute(C runnerContext) {
@@ -17,134 +17,1165 @@
 package com.eharmony.runner.task;
 
 import com.eharmony.runner.RunnerContext;
+import com.eharmony.runner.file.RejectFileWriter;
 import com.eharmony.runner.file.TaskFileWriter;
+import com.eharmony.runner.input.BinaryInputFile;
+import com.eharmony.runner.input.BinaryRecordReader;
+import com.eharmony.runner.input.ByteLineReader;
+import com.eharmony.runner.input.FileSplit;
+import com.eharmony.runner.input.GzipInput;
+import com.eharmony.runner.input.InputFiles;
+import com.eharmony.runner.input.IntLineParser;
+import com.eharmony.runner.input.LineIndex;
 import com.eharmony.runner.input.LineParser;
-import com.eharmony.runner.input.LineReader;
+import com.eharmony.runner.input.LongLineParser;
+import com.eharmony.runner.input.MalformedRecordException;
+import com.eharmony.runner.input.RecordReader;
+import com.eharmony.runner.input.SplitLineReader;
 import com.eharmony.runner.output.LogStatisticsOutputWriter;
 import com.eharmony.runner.output.StatisticsOutputWriter;
 import com.eharmony.runner.statistics.Counters;
+import com.eharmony.runner.statistics.KeyedCounters;
+import com.eharmony.runner.statistics.StatisticsMBeans;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 public class TaskRunner<I, C extends RunnerContext> {
     private static final Logger LOG = LoggerFactory.getLogger(TaskRunner.class);
+    public static final String RUNNER_PIPELINE_ENABLED = "runner.pipeline.enabled";
+    public static final String RUNNER_PIPELINE_QUEUE_SIZE = "runner.pipeline.queue.size";
+    public static final String RUNNER_PIPELINE_PREFETCH_SIZE = "runner.pipeline.prefetch.size";
+    public static final String RUNNER_PARSER_PARALLEL = "runner.parser.parallel";
+    public static final String RUNNER_INPUT_SPLITS = "runner.input.splits";
+    public static final String RUNNER_INPUT_INDEX = "runner.input.index";
+    public static final String RUNNER_INPUT_INDEX_INTERVAL = "runner.input.index.interval";
+    public static final String RUNNER_INPUT_FILE_READERS = "runner.input.file.readers";
+    public static final String RUNNER_CHECKPOINT_INTERVAL = "runner.checkpoint.interval";
+    public static final String RUNNER_CHECKPOINT_FILE = "runner.checkpoint.file";
+    public static final String DEFAULT_CHECKPOINT_FILE = "runner.checkpoint";
+    public static final String RUNNER_TASK_EXECUTOR = "runner.task.executor";
+    public static final String RUNNER_TASK_MAX_INFLIGHT = "runner.task.max.inflight";
+    public static final String RUNNER_BATCH_ADAPTIVE = "runner.task.batch.adaptive";
+    public static final String RUNNER_BATCH_TARGET_MS = "runner.task.batch.target.ms";
+    public static final String RUNNER_BATCH_MIN_SIZE = "runner.task.batch.min.size";
+    public static final String RUNNER_BATCH_MAX_SIZE = "runner.task.batch.max.size";
+    public static final String RUNNER_TASK_LIMITER = "runner.task.limiter";
+    public static final String RUNNER_TASK_RECORDS_PER_SECOND = "runner.task.records.per.second";
+    public static final String RUNNER_REJECT_FILE = "runner.reject.file";
+    public static final String RUNNER_RETRY_ATTEMPTS = "runner.task.retry.attempts";
+    public static final String RUNNER_RETRY_BACKOFF_MS = "runner.task.retry.backoff.ms";
+    public static final String LIMITER_FIXED = "fixed";
+    public static final String LIMITER_AIMD = "aimd";
+    public static final String EXECUTOR_PLATFORM = "platform";
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+    public static final String EXECUTOR_FORK_JOIN = "forkjoin";
+    public static final String RUNNER_FORK_JOIN_GRAIN = "runner.task.forkjoin.grain";
+    public static final String RUNNER_METRICS_JMX = "runner.metrics.jmx";
+    private static final int DEFAULT_PIPELINE_QUEUE_SIZE = 4;
+    private static final int DEFAULT_INPUT_FILE_READERS = 4;
+    private static final int DEFAULT_PIPELINE_PREFETCH_SIZE = 2;
+    private static final long COLLECTOR_POLL_MS = 100;
+    private static final int DEFAULT_BATCH_TARGET_MS = 100;
+    private static final int DEFAULT_BATCH_MAX_SIZE = 100000;
+    private static final int DEFAULT_FORK_JOIN_GRAIN = 100;
+    private static final long DEFAULT_RETRY_BACKOFF_MS = 1000;
     private final int batchSize;
     private final int numThreads;
-    private final CompletionService<Boolean> completionService;
+    private ExecutorService executorService;
+    private CompletionService<Boolean> completionService;
     private final LogStatisticsOutputWriter logOutputWriter;
     private Optional<StatisticsOutputWriter> alternateOutputWriter;
     private int batchCount;
-    private int skipSize;
-    private int inputSize;
-    private int currInputSize = 0;
+    private long skipSize;
+    private long inputSize;
+    private boolean pipelineEnabled = false;
+    private int pipelineQueueSize = DEFAULT_PIPELINE_QUEUE_SIZE;
+    private int pipelinePrefetchSize = DEFAULT_PIPELINE_PREFETCH_SIZE;
+    private boolean parallelParsing = false;
+    private int inputSplits = 1;
+    private boolean useLineIndex = false;
+    private int inputFileReaders = DEFAULT_INPUT_FILE_READERS;
+    private int readerThreadCount = 1;
+    private int lineIndexInterval = LineIndex.DEFAULT_INTERVAL;
+    private Thread lineIndexBuilder;
+    private long checkpointInterval = 0;
+    private File checkpointFile = new File(DEFAULT_CHECKPOINT_FILE);
+    private CheckpointTracker checkpointTracker;
+    private String checkpointInput;
+    private int configuredMaxInFlight = 0;
+    private boolean adaptiveBatching = false;
+    private int batchTargetMs = DEFAULT_BATCH_TARGET_MS;
+    private int minBatchSize = 1;
+    private int maxBatchSize = DEFAULT_BATCH_MAX_SIZE;
+    private AdaptiveBatchSizer batchSizer;
+    private int forkJoinGrain = 0;
+    private String limiterName = LIMITER_FIXED;
+    private Properties limiterProperties = new Properties();
+    private double recordsPerSecond = 0;
+    private volatile ConcurrencyLimit concurrencyLimit;
+    private RecordRateLimiter rateLimiter;
+    private File rejectFile;
+    private RetryPolicy retryPolicy;
+    private RejectFileWriter rejectWriter;
+    private volatile long submittedBatches;
+    private final RunnerMetrics metrics = new RunnerMetrics();
+    private boolean jmxEnabled = true;
+    private volatile boolean dispatchComplete;
 
     public TaskRunner(final int numThreads, final int batchSize) {
-        this(numThreads, batchSize, Optional.empty(),0,Integer.MAX_VALUE);
+        this(numThreads, batchSize, Optional.empty(),0,Long.MAX_VALUE);
     }
 
     public TaskRunner(final int numThreads, final int batchSize,
                       final StatisticsOutputWriter alternateOutputWriter) {
         this(numThreads, batchSize, Optional.of(alternateOutputWriter),0,
-                Integer.MAX_VALUE);
+                Long.MAX_VALUE);
     }
 
     public TaskRunner(final int numThreads, final int batchSize,
                       final Optional<StatisticsOutputWriter> alternateOutputWriter,
-                      final int skipRecords,final int inputSize) {
+                      final long skipRecords,final long inputSize) {
         this.batchSize = batchSize;
         this.numThreads = numThreads;
         this.alternateOutputWriter = alternateOutputWriter;
         this.logOutputWriter = new LogStatisticsOutputWriter();
-        this.completionService = new ExecutorCompletionService<>(Executors.newFixedThreadPool(numThreads));
+        this.executorService = Executors.newFixedThreadPool(numThreads);
+        this.completionService = new ExecutorCompletionService<>(executorService);
         this.skipSize = skipRecords;
         this.inputSize = inputSize;
     }
 
-    public void executeTask(final File inputFile,
-                            final LineParser<I> parser,
-                            final Task<I, C> task,
-                            final C runnerContext) {
-        batchCount = 0;
-        final long startTime = System.currentTimeMillis();
-        try (LineReader<I> reader = new LineReader<>(inputFile, parser,this.skipSize)){
-            List<I> inputCollection = getInputBatch(reader);
+    /**
+     * Reads the optional runner properties that tune how batches are read and dispatched. Properties that are not
+     * present keep their defaults, so a runner that is never configured behaves exactly as before.
+     */
+    public void configure(final Properties properties) {
+        pipelineEnabled = Boolean.parseBoolean(properties.getProperty(RUNNER_PIPELINE_ENABLED, "false"));
+        pipelineQueueSize = getPositiveInt(properties, RUNNER_PIPELINE_QUEUE_SIZE, DEFAULT_PIPELINE_QUEUE_SIZE);
+        pipelinePrefetchSize = Integer.parseInt(properties.getProperty(RUNNER_PIPELINE_PREFETCH_SIZE,
+                Integer.toString(DEFAULT_PIPELINE_PREFETCH_SIZE)));
+        if (pipelinePrefetchSize < 0) {
+            throw new IllegalArgumentException(RUNNER_PIPELINE_PREFETCH_SIZE + " must not be negative");
+        }
+        parallelParsing = Boolean.parseBoolean(properties.getProperty(RUNNER_PARSER_PARALLEL, "false"));
+        inputSplits = getPositiveInt(properties, RUNNER_INPUT_SPLITS, 1);
+        useLineIndex = Boolean.parseBoolean(properties.getProperty(RUNNER_INPUT_INDEX, "false"));
+        lineIndexInterval = getPositiveInt(properties, RUNNER_INPUT_INDEX_INTERVAL, LineIndex.DEFAULT_INTERVAL);
+        inputFileReaders = getPositiveInt(properties, RUNNER_INPUT_FILE_READERS, DEFAULT_INPUT_FILE_READERS);
+        checkpointInterval = Long.parseLong(properties.getProperty(RUNNER_CHECKPOINT_INTERVAL, "0"));
+        checkpointFile = new File(properties.getProperty(RUNNER_CHECKPOINT_FILE, DEFAULT_CHECKPOINT_FILE));
+        if (checkpointInterval > 0 && inputSplits > 1) {
+            throw new IllegalArgumentException(RUNNER_CHECKPOINT_INTERVAL + " cannot be combined with "
+                    + RUNNER_INPUT_SPLITS + ", progress through a split input is not contiguous");
+        }
+        adaptiveBatching = Boolean.parseBoolean(properties.getProperty(RUNNER_BATCH_ADAPTIVE, "false"));
+        batchTargetMs = getPositiveInt(properties, RUNNER_BATCH_TARGET_MS, DEFAULT_BATCH_TARGET_MS);
+        minBatchSize = getPositiveInt(properties, RUNNER_BATCH_MIN_SIZE, 1);
+        maxBatchSize = getPositiveInt(properties, RUNNER_BATCH_MAX_SIZE, DEFAULT_BATCH_MAX_SIZE);
+        if (minBatchSize > maxBatchSize) {
+            throw new IllegalArgumentException(RUNNER_BATCH_MIN_SIZE + " must not be larger than "
+                    + RUNNER_BATCH_MAX_SIZE);
+        }
+        configuredMaxInFlight = Integer.parseInt(properties.getProperty(RUNNER_TASK_MAX_INFLIGHT, "0"));
+        if (configuredMaxInFlight < 0) {
+            throw new IllegalArgumentException(RUNNER_TASK_MAX_INFLIGHT + " must not be negative");
+        }
 
-            int activeThreads = 0;
+        final String rejectFileName = properties.getProperty(RUNNER_REJECT_FILE);
+        rejectFile = rejectFileName != null ? new File(rejectFileName) : null;
+        final int retryAttempts = Integer.parseInt(properties.getProperty(RUNNER_RETRY_ATTEMPTS, "0"));
+        final long retryBackoffMs = Long.parseLong(properties.getProperty(RUNNER_RETRY_BACKOFF_MS,
+                Long.toString(DEFAULT_RETRY_BACKOFF_MS)));
+        if (retryAttempts < 0 || retryBackoffMs < 0) {
+            throw new IllegalArgumentException(RUNNER_RETRY_ATTEMPTS + " and " + RUNNER_RETRY_BACKOFF_MS
+                    + " must not be negative");
+        }
+        retryPolicy = retryAttempts > 0 ? new RetryPolicy(retryAttempts, retryBackoffMs) : null;
+        limiterName = properties.getProperty(RUNNER_TASK_LIMITER, LIMITER_FIXED).trim();
+        limiterProperties = properties;
+        createConcurrencyLimit();
+        recordsPerSecond = Double.parseDouble(properties.getProperty(RUNNER_TASK_RECORDS_PER_SECOND, "0"));
+        if (recordsPerSecond < 0) {
+            throw new IllegalArgumentException(RUNNER_TASK_RECORDS_PER_SECOND + " must not be negative");
+        }
 
-            LOG.info("Executing batches for task {}", task.getClass().getSimpleName());
+        jmxEnabled = Boolean.parseBoolean(properties.getProperty(RUNNER_METRICS_JMX, "true"));
 
-            while (inputCollection.size() > 0) {
-                RunnableTaskContainer<I, C> container = new RunnableTaskContainer<>(inputCollection, runnerContext, task);
-                completionService.submit(container);
-                inputCollection = getInputBatch(reader);
-                activeThreads++;
-                if (activeThreads == numThreads) {
-                    processBatchResults();
-                    activeThreads--;
-                }
-            }
+        final String taskExecutor = properties.getProperty(RUNNER_TASK_EXECUTOR, EXECUTOR_PLATFORM).trim();
+        if (EXECUTOR_VIRTUAL.equals(taskExecutor)) {
+            executorService.shutdown();
+            executorService = newVirtualThreadExecutor();
+            completionService = new ExecutorCompletionService<>(executorService);
+        } else if (EXECUTOR_FORK_JOIN.equals(taskExecutor)) {
+            executorService.shutdown();
+            executorService = new ForkJoinPool(numThreads);
+            completionService = new ExecutorCompletionService<>(executorService);
+            forkJoinGrain = getPositiveInt(properties, RUNNER_FORK_JOIN_GRAIN, DEFAULT_FORK_JOIN_GRAIN);
+        } else if (!EXECUTOR_PLATFORM.equals(taskExecutor)) {
+            throw new IllegalArgumentException(RUNNER_TASK_EXECUTOR + " must be " + EXECUTOR_PLATFORM + ", "
+                    + EXECUTOR_VIRTUAL + " or " + EXECUTOR_FORK_JOIN + ", was " + taskExecutor);
+        }
+    }
 
-            while (activeThreads > 0) {
-                processBatchResults();
-                activeThreads--;
+    /**
+     * Creates an executor that starts a virtual thread per batch. It is looked up reflectively so the runner still
+     * builds and runs on Java 8, and only needs Java 21 when virtual threads are asked for.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException(RUNNER_TASK_EXECUTOR + "=" + EXECUTOR_VIRTUAL
+                    + " requires Java 21 or later, running on " + System.getProperty("java.version"), ex);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to create virtual thread executor", ex);
+        }
+    }
+
+    /**
+     * @return the configured limit on batches in flight, or the given default when none was set
+     */
+    private int getMaxInFlight(final int defaultMaxInFlight) {
+        return configuredMaxInFlight > 0 ? configuredMaxInFlight : defaultMaxInFlight;
+    }
+
+    /**
+     * Starts a fresh concurrency limit for a run, bounded by {@code runner.task.max.inflight} or else by the default
+     * of the execution mode.
+     */
+    private ConcurrencyLimit startConcurrencyLimit(final int defaultMaxInFlight) {
+        final ConcurrencyLimit limit = createConcurrencyLimit();
+        limit.init(getMaxInFlight(defaultMaxInFlight), limiterProperties);
+        concurrencyLimit = limit;
+        return limit;
+    }
+
+    private ConcurrencyLimit createConcurrencyLimit() {
+        if (LIMITER_FIXED.equals(limiterName)) {
+            return new FixedConcurrencyLimit();
+        } else if (LIMITER_AIMD.equals(limiterName)) {
+            return new AimdConcurrencyLimit();
+        }
+
+        try {
+            return (ConcurrencyLimit) Class.forName(limiterName).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new IllegalArgumentException(RUNNER_TASK_LIMITER + " must be " + LIMITER_FIXED + ", " + LIMITER_AIMD
+                    + " or the class name of a ConcurrencyLimit, was " + limiterName, ex);
+        }
+    }
+
+    private void awaitRateLimit(final RunnableTaskContainer<I, C> container) throws InterruptedException {
+        awaitRateLimit(container.size());
+    }
+
+    private void awaitRateLimit(final int recordCount) throws InterruptedException {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(recordCount);
+        }
+    }
+
+    public boolean executeTask(final File inputFile,
+                               final LineParser<I> parser,
+                               final Task<I, C> task,
+                               final C runnerContext) {
+        return executeTask(Collections.singletonList(inputFile), parser, task, runnerContext);
+    }
+
+    /**
+     * Runs the task over several input files as if they were one file, in the given order. Skip and process sizes
+     * apply to the files as a whole. Up to {@code runner.input.file.readers} files are read at once, one reader each,
+     * all feeding the same workers.
+     *
+     * @return true if the run finished, false if it was stopped by an error, which has already been logged
+     */
+    public boolean executeTask(final List<File> inputFiles,
+                               final LineParser<I> parser,
+                               final Task<I, C> task,
+                               final C runnerContext) {
+        batchCount = 0;
+        submittedBatches = 0;
+        checkpointTracker = checkpointInterval > 0 ? new CheckpointTracker() : null;
+        batchSizer = adaptiveBatching
+                ? new AdaptiveBatchSizer(batchSize, minBatchSize, maxBatchSize,
+                        TimeUnit.MILLISECONDS.toNanos(batchTargetMs))
+                : null;
+        rateLimiter = recordsPerSecond > 0 ? new RecordRateLimiter(recordsPerSecond) : null;
+        rejectWriter = rejectFile != null ? new RejectFileWriter(rejectFile) : null;
+        checkpointInput = InputFiles.describe(inputFiles);
+        metrics.start(numThreads);
+        if (jmxEnabled) {
+            metrics.register();
+            StatisticsMBeans.register();
+        }
+        final long startTime = System.currentTimeMillis();
+        List<RecordReader<I>> readers = new ArrayList<>();
+        boolean finished = false;
+        try {
+            readers.addAll(inputFiles.size() == 1
+                    ? openReaders(inputFiles.get(0), parser)
+                    : openFileReaders(inputFiles, parser));
+            LOG.info("Executing batches for task {}", task.getClass().getSimpleName());
+
+            if (readers.isEmpty()) {
+                LOG.warn("No input records to process");
+            } else if (task instanceof AsyncTask) {
+                executeAsync(readers, parser, (AsyncTask<I, C>) task, runnerContext);
+            } else if (isPrimitive(parser, task)) {
+                executePrimitive(readers, parser, task, runnerContext);
+            } else if (pipelineEnabled || readers.size() > 1) {
+                executePipelined(readers, parser, task, runnerContext);
+            } else {
+                executeSequential(readers.get(0), parser, task, runnerContext);
             }
 
             LOG.info("Finished batches for task {}", task.getClass().getSimpleName());
             LOG.info("{}\t{}ms", "TOTAL TIME:", System.currentTimeMillis() - startTime);
+            if (checkpointTracker != null && checkpointFile.delete()) {
+                LOG.info("Run complete, removed checkpoint {}", checkpointFile);
+            }
+            finished = true;
 
         } catch (Exception ex) {
             LOG.error("Failed to execute task", ex);
+        } finally {
+            metrics.finish();
+            closeReaders(readers);
+            awaitLineIndexBuild();
+            closeRejectWriter();
         }
 
         task.postExecute(runnerContext);
         logOutputWriter.outputCounters();
         logOutputWriter.outputAggregators();
+        logOutputWriter.outputKeyedCounters();
         if (alternateOutputWriter.isPresent()) {
             alternateOutputWriter.get().outputCounters();
             alternateOutputWriter.get().outputAggregators();
+            alternateOutputWriter.get().outputKeyedCounters();
         }
         Counters.clearCounters();
+        KeyedCounters.clearTables();
         TaskFileWriter.closeAll();
+        return finished;
     }
 
-    private void processBatchResults() {
+    /**
+     * Stops the worker threads. The command line runner exits once its task is done, but a runner embedded in a
+     * longer lived process, such as a benchmark, should call this after its last {@link #executeTask}.
+     */
+    public void shutdown() {
+        executorService.shutdown();
+        metrics.unregister();
+    }
+
+    /**
+     * @return the metrics of the current or last run, which are also exposed over JMX unless
+     * {@code runner.metrics.jmx} is false
+     */
+    public RunnerMetricsMBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Opens a single reader over the whole file, or one reader per split when {@code runner.input.splits} is greater
+     * than one. With a line index the readers seek directly to the records being processed. Without one, each
+     * split's lines are counted up front when only part of the file is processed, so every split reader can apply
+     * its share of the skip and process window. Gzip files can neither be split nor seeked into, so they are always
+     * read by a single reader, which decompresses them on {@code runner.input.gzip.threads} threads. Compiled binary
+     * input is cut into ranges of records instead, as every record's offset is known.
+     */
+    private List<RecordReader<I>> openReaders(final File inputFile, final LineParser<I> parser) throws Exception {
+        readerThreadCount = inputSplits;
+        if (BinaryInputFile.isBinary(inputFile)) {
+            return openBinaryReaders(BinaryInputFile.open(inputFile), parser);
+        }
+        if (GzipInput.isGzip(inputFile)) {
+            if (inputSplits > 1 || useLineIndex) {
+                LOG.warn("{} is gzip compressed, ignoring input splits and line index", inputFile);
+            }
+            return Collections.singletonList(new ByteLineReader<>(inputFile, parser, skipSize, inputSize));
+        }
+
+        final LineIndex lineIndex = useLineIndex ? loadLineIndex(inputFile) : null;
+
+        if (inputSplits <= 1) {
+            if (lineIndex != null) {
+                return Collections.singletonList(
+                        new ByteLineReader<>(inputFile, parser, skipSize, inputSize, lineIndex));
+            }
+            return Collections.singletonList(new ByteLineReader<>(inputFile, parser, skipSize, inputSize));
+        }
+
+        final List<RecordReader<I>> readers = lineIndex != null
+                ? openIndexedSplitReaders(inputFile, parser, lineIndex)
+                : openSplitReaders(inputFile, parser);
+        LOG.info("Reading {} with {} splits", inputFile, readers.size());
+        return readers;
+    }
+
+    private List<RecordReader<I>> openIndexedSplitReaders(final File inputFile,
+                                                          final LineParser<I> parser,
+                                                          final LineIndex lineIndex) throws Exception {
+        final long rangeStart = lineIndex.findLineOffset(inputFile, skipSize);
+        final long rangeEnd = lineIndex.findLineOffset(inputFile, getWindowEnd());
+        List<RecordReader<I>> readers = new ArrayList<>(inputSplits);
+
         try {
-            Future<Boolean> taskFuture = completionService.take();
-            batchCount++;
-            Boolean result = taskFuture.get();
-            if (result) {
-                if (batchCount % 100 == 0) {
-                    LOG.info("Batches complete {}", batchCount);
-                    logOutputWriter.outputCounters();
+            for (FileSplit split : FileSplit.createSplits(inputFile, inputSplits, rangeStart, rangeEnd)) {
+                readers.add(new SplitLineReader<>(split, parser, 0, Long.MAX_VALUE));
+            }
+        } catch (Exception ex) {
+            closeReaders(readers);
+            throw ex;
+        }
+        return readers;
+    }
+
+    /**
+     * Splits the records of the skip and process window into {@code runner.input.splits} ranges of equal size.
+     */
+    private List<RecordReader<I>> openBinaryReaders(final BinaryInputFile inputFile, final LineParser<I> parser)
+            throws Exception {
+        final long firstRecord = Math.min(skipSize, inputFile.getRecordCount());
+        final long endRecord = Math.min(getWindowEnd(), inputFile.getRecordCount());
+        final int splits = (int) Math.max(1, Math.min(inputSplits, endRecord - firstRecord));
+        final long splitSize = (endRecord - firstRecord) / splits;
+        final long remainder = (endRecord - firstRecord) % splits;
+        List<RecordReader<I>> readers = new ArrayList<>(splits);
+
+        long splitStart = firstRecord;
+        try {
+            for (int i = 0; i < splits; i++) {
+                final long splitRecords = splitSize + (i < remainder ? 1 : 0);
+                readers.add(new BinaryRecordReader<>(inputFile, parser, splitStart, splitRecords));
+                splitStart += splitRecords;
+            }
+        } catch (Exception ex) {
+            closeReaders(readers);
+            throw ex;
+        }
+        LOG.info("Reading {} compiled {} records of {} with {} readers", endRecord - firstRecord,
+                inputFile.getFormat(), inputFile.getFile(), readers.size());
+        return readers;
+    }
+
+    /**
+     * Creates a reader per input file, which only opens its file once it is first read. Files that lie entirely
+     * outside the skip and process window are left out, for which every file's lines are counted up front when only
+     * part of the input is processed. Checkpoints require contiguous progress, so with checkpoints enabled the files
+     * are read one at a time.
+     */
+    private List<RecordReader<I>> openFileReaders(final List<File> inputFiles, final LineParser<I> parser)
+            throws Exception {
+        if (inputSplits > 1 || useLineIndex) {
+            LOG.warn("Reading {} input files, ignoring input splits and line index", inputFiles.size());
+        }
+        readerThreadCount = checkpointInterval > 0 ? 1 : Math.min(inputFileReaders, inputFiles.size());
+
+        final long[] fileLines = countFileLines(inputFiles);
+        final long windowStart = skipSize;
+        final long windowEnd = getWindowEnd();
+        final List<File> files = new ArrayList<>(inputFiles.size());
+        final List<long[]> fileWindows = new ArrayList<>(inputFiles.size());
+
+        long fileFirstRecord = 0;
+        for (int i = 0; i < inputFiles.size(); i++) {
+            if (fileLines == null) {
+                files.add(inputFiles.get(i));
+                fileWindows.add(new long[] {0, Long.MAX_VALUE});
+                continue;
+            }
+            final long fileLastRecord = fileFirstRecord + fileLines[i];
+            final long readStart = Math.max(windowStart, fileFirstRecord);
+            final long readEnd = Math.min(windowEnd, fileLastRecord);
+            if (readEnd > readStart) {
+                files.add(inputFiles.get(i));
+                fileWindows.add(new long[] {readStart - fileFirstRecord, readEnd - readStart});
+            }
+            fileFirstRecord = fileLastRecord;
+        }
+
+        final AtomicInteger finishedFiles = new AtomicInteger();
+        List<RecordReader<I>> readers = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            readers.add(new InputFileReader<>(files.get(i), parser, fileWindows.get(i)[0], fileWindows.get(i)[1],
+                    finishedFiles, files.size()));
+        }
+        LOG.info("Reading {} input files with {} readers", readers.size(), readerThreadCount);
+        return readers;
+    }
+
+    private List<RecordReader<I>> openSplitReaders(final File inputFile, final LineParser<I> parser)
+            throws Exception {
+        final List<FileSplit> splits = FileSplit.createSplits(inputFile, inputSplits);
+        final long[] splitLines = countSplitLines(splits);
+        final long windowStart = skipSize;
+        final long windowEnd = getWindowEnd();
+        List<RecordReader<I>> readers = new ArrayList<>(splits.size());
+
+        long splitFirstRecord = 0;
+        try {
+            for (int i = 0; i < splits.size(); i++) {
+                if (splitLines == null) {
+                    readers.add(new SplitLineReader<>(splits.get(i), parser, 0, Long.MAX_VALUE));
+                    continue;
                 }
-            } else {
-                LOG.error("Task failed");
+                final long splitLastRecord = splitFirstRecord + splitLines[i];
+                final long readStart = Math.max(windowStart, splitFirstRecord);
+                final long readEnd = Math.min(windowEnd, splitLastRecord);
+                if (readEnd > readStart) {
+                    readers.add(new SplitLineReader<>(splits.get(i), parser, readStart - splitFirstRecord,
+                            readEnd - readStart));
+                }
+                splitFirstRecord = splitLastRecord;
+            }
+        } catch (Exception ex) {
+            closeReaders(readers);
+            throw ex;
+        }
+        return readers;
+    }
+
+    /**
+     * @return the stored line index of the input file, or null when it has none yet. In that case the index is built
+     * on a background thread while this run reads the file the slow way, so later runs can use it.
+     */
+    private LineIndex loadLineIndex(final File inputFile) throws Exception {
+        Optional<LineIndex> lineIndex = LineIndex.load(inputFile);
+        if (lineIndex.isPresent()) {
+            return lineIndex.get();
+        }
+
+        LOG.info("No line index found for {}, building one during this run", inputFile);
+        lineIndexBuilder = new Thread(() -> {
+            try {
+                LineIndex.build(inputFile, lineIndexInterval).write(inputFile);
+                LOG.info("Wrote line index {}", LineIndex.getIndexFile(inputFile));
+            } catch (Exception ex) {
+                LOG.error("Failed to build line index for " + inputFile, ex);
+            }
+        }, "task-runner-line-index");
+        lineIndexBuilder.setDaemon(true);
+        lineIndexBuilder.start();
+        return null;
+    }
+
+    private void awaitLineIndexBuild() {
+        if (lineIndexBuilder != null) {
+            try {
+                lineIndexBuilder.join();
+            } catch (InterruptedException ex) {
+                LOG.error("Interrupted while building line index", ex);
+            }
+            lineIndexBuilder = null;
+        }
+    }
+
+    private long getWindowEnd() {
+        return inputSize > Long.MAX_VALUE - skipSize ? Long.MAX_VALUE : skipSize + inputSize;
+    }
+
+    /**
+     * @return the number of lines in each split, or null when the whole file is processed and counts are not needed
+     */
+    private long[] countSplitLines(final List<FileSplit> splits) throws Exception {
+        if (skipSize == 0 && inputSize == Long.MAX_VALUE) {
+            return null;
+        }
+
+        final ExecutorService countService = Executors.newFixedThreadPool(splits.size());
+        try {
+            List<Future<Long>> counts = new ArrayList<>(splits.size());
+            for (FileSplit split : splits) {
+                counts.add(countService.submit(split::countLines));
+            }
+
+            long[] splitLines = new long[splits.size()];
+            for (int i = 0; i < splitLines.length; i++) {
+                splitLines[i] = counts.get(i).get();
+            }
+            return splitLines;
+        } finally {
+            countService.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of lines in each file, or null when all input is processed and counts are not needed
+     */
+    private long[] countFileLines(final List<File> inputFiles) throws Exception {
+        if (skipSize == 0 && inputSize == Long.MAX_VALUE) {
+            return null;
+        }
+
+        final ExecutorService countService = Executors.newFixedThreadPool(Math.min(inputFileReaders,
+                inputFiles.size()));
+        try {
+            List<Future<Long>> counts = new ArrayList<>(inputFiles.size());
+            for (File inputFile : inputFiles) {
+                counts.add(countService.submit(() -> countLines(inputFile)));
+            }
+
+            long[] fileLines = new long[inputFiles.size()];
+            for (int i = 0; i < fileLines.length; i++) {
+                fileLines[i] = counts.get(i).get();
+            }
+            return fileLines;
+        } finally {
+            countService.shutdown();
+        }
+    }
+
+    private long countLines(final File inputFile) throws Exception {
+        if (BinaryInputFile.isBinary(inputFile)) {
+            return BinaryInputFile.open(inputFile).getRecordCount();
+        }
+        if (!GzipInput.isGzip(inputFile)) {
+            return new FileSplit(inputFile, 0, inputFile.length()).countLines();
+        }
+
+        long lines = 0;
+        try (ByteLineReader<I> reader = new ByteLineReader<>(inputFile, null, 0, Long.MAX_VALUE)) {
+            while (reader.nextLine() != null) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private void closeRejectWriter() {
+        if (rejectWriter == null) {
+            return;
+        }
+        try {
+            rejectWriter.close();
+        } catch (IOException ex) {
+            LOG.error("Failed to close reject file " + rejectFile, ex);
+        }
+    }
+
+    private void closeReaders(final List<RecordReader<I>> readers) {
+        for (RecordReader<I> reader : readers) {
+            try {
+                reader.close();
+            } catch (Exception ex) {
+                LOG.error("Failed to close input reader", ex);
+            }
+        }
+    }
+
+    private void executeSequential(final RecordReader<I> reader,
+                                   final LineParser<I> parser,
+                                   final Task<I, C> task,
+                                   final C runnerContext) throws Exception {
+        RunnableTaskContainer<I, C> container = getNextBatch(reader, parser, task, runnerContext);
+        final ConcurrencyLimit limit = startConcurrencyLimit(numThreads);
+
+        int activeThreads = 0;
+
+        while (container.size() > 0) {
+            awaitRateLimit(container);
+            submitBatch(container);
+            container = getNextBatch(reader, parser, task, runnerContext);
+            activeThreads++;
+            while (activeThreads >= Math.max(limit.getLimit(), 1)) {
+                processBatchResults();
+                activeThreads--;
+            }
+            if (isCheckpointDue()) {
+                while (activeThreads > 0) {
+                    processBatchResults();
+                    activeThreads--;
+                }
+                writeCheckpoint();
+            }
+        }
+
+        while (activeThreads > 0) {
+            processBatchResults();
+            activeThreads--;
+        }
+    }
+
+    /**
+     * @return true when the parser and the task can exchange batches as primitive arrays. Rejected batches are written
+     * as raw lines, which only the boxed path keeps.
+     */
+    private boolean isPrimitive(final LineParser<I> parser, final Task<I, C> task) {
+        return rejectWriter == null
+                && (task instanceof IntTask && parser instanceof IntLineParser
+                        || task instanceof LongTask && parser instanceof LongLineParser);
+    }
+
+    /**
+     * Drives an {@link IntTask} or a {@link LongTask}. Batches are read straight into pooled primitive arrays on the
+     * calling thread, readers in turn, and each array goes back to the pool once its batch has run, so no object is
+     * created per record. Dispatch otherwise follows {@link #executeSequential}.
+     */
+    @SuppressWarnings("unchecked")
+    private void executePrimitive(final List<RecordReader<I>> readers,
+                                  final LineParser<I> parser,
+                                  final Task<I, C> task,
+                                  final C runnerContext) throws Exception {
+        if (task instanceof IntTask) {
+            final IntLineParser intParser = (IntLineParser) parser;
+            final IntTask<C> intTask = (IntTask<C>) task;
+            dispatchPrimitive(readers, new PrimitiveArrayPool<>(int[]::new, values -> values.length),
+                    (reader, values, length) -> reader.readInts(intParser, values, length),
+                    (values, length) -> intTask.executeIntTask(values, length, runnerContext));
+        } else {
+            final LongLineParser longParser = (LongLineParser) parser;
+            final LongTask<C> longTask = (LongTask<C>) task;
+            dispatchPrimitive(readers, new PrimitiveArrayPool<>(long[]::new, values -> values.length),
+                    (reader, values, length) -> reader.readLongs(longParser, values, length),
+                    (values, length) -> longTask.executeLongTask(values, length, runnerContext));
+        }
+    }
+
+    private <A> void dispatchPrimitive(final List<RecordReader<I>> readers,
+                                       final PrimitiveArrayPool<A> pool,
+                                       final PrimitiveBatchReader<I, A> batchReader,
+                                       final PrimitiveBatchTask<A> batchTask) throws Exception {
+        final ConcurrencyLimit limit = startConcurrencyLimit(numThreads);
+        int activeThreads = 0;
+
+        for (RecordReader<I> reader : readers) {
+            while (true) {
+                final int currentBatchSize = getBatchSize();
+                final A values = pool.borrow(currentBatchSize);
+                final long readStart = System.nanoTime();
+                final int length = batchReader.read(reader, values, currentBatchSize);
+                metrics.batchRead(System.nanoTime() - readStart);
+                if (length == 0) {
+                    pool.release(values);
+                    break;
+                }
+
+                awaitRateLimit(length);
+                submitPrimitiveBatch(values, length, pool, batchTask);
+                activeThreads++;
+                while (activeThreads >= Math.max(limit.getLimit(), 1)) {
+                    processBatchResults();
+                    activeThreads--;
+                }
+                if (isCheckpointDue()) {
+                    while (activeThreads > 0) {
+                        processBatchResults();
+                        activeThreads--;
+                    }
+                    writeCheckpoint();
+                }
+            }
+        }
+
+        while (activeThreads > 0) {
+            processBatchResults();
+            activeThreads--;
+        }
+    }
+
+    private <A> void submitPrimitiveBatch(final A values,
+                                          final int length,
+                                          final PrimitiveArrayPool<A> pool,
+                                          final PrimitiveBatchTask<A> batchTask) {
+        final long batchNumber = submittedBatches;
+        metrics.batchSubmitted();
+        completionService.submit(() -> {
+            final long startTime = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                succeeded = executePrimitiveBatch(values, length, batchTask);
+                return succeeded;
+            } finally {
+                pool.release(values);
+                completeBatch(batchNumber, length, System.nanoTime() - startTime, succeeded);
+            }
+        });
+        submittedBatches++;
+    }
+
+    /**
+     * Runs a primitive batch, retrying it like {@link RunnableTaskContainer} does when it fails.
+     */
+    private <A> boolean executePrimitiveBatch(final A values, final int length, final PrimitiveBatchTask<A> batchTask)
+            throws Exception {
+        int attempt = 0;
+        while (true) {
+            try {
+                final boolean result = batchTask.execute(values, length);
+                if (result || retryPolicy == null || !retryPolicy.canRetry(attempt)) {
+                    return result;
+                }
+            } catch (Exception ex) {
+                if (retryPolicy == null || !retryPolicy.canRetry(attempt)) {
+                    throw ex;
+                }
+                LOG.warn("Batch failed, retrying", ex);
+            }
+            Counters.incrementCounter(RunnableTaskContainer.BATCH_RETRIES_COUNTER);
+            Thread.sleep(retryPolicy.getBackoffMillis(attempt++));
+        }
+    }
+
+    /**
+     * Runs the readers, the dispatcher and the result collector as separate stages. Reader threads, one per split or
+     * up to {@code runner.input.file.readers} for several input files, each take the next unread reader and keep up
+     * to {@code pipelineQueueSize} batches ready, the calling thread dispatches them while the concurrency limit allows,
+     * by default {@code numThreads + pipelinePrefetchSize} batches in flight, and a collector thread drains the
+     * completion service, so workers never wait on input being read or on results being processed.
+     */
+    private void executePipelined(final List<RecordReader<I>> readers,
+                                  final LineParser<I> parser,
+                                  final Task<I, C> task,
+                                  final C runnerContext) throws Exception {
+        final BlockingQueue<RunnableTaskContainer<I, C>> readyBatches = new ArrayBlockingQueue<>(pipelineQueueSize);
+        final RunnableTaskContainer<I, C> endOfInput =
+                new RunnableTaskContainer<>(Collections.emptyList(), runnerContext, task);
+        final ConcurrencyGate inFlight = new ConcurrencyGate(startConcurrencyLimit(numThreads + pipelinePrefetchSize));
+        final AtomicReference<Exception> readFailure = new AtomicReference<>();
+        final int threadCount = Math.max(1, Math.min(readers.size(), readerThreadCount));
+        final AtomicInteger activeReaders = new AtomicInteger(threadCount);
+        final AtomicInteger nextReader = new AtomicInteger();
+        final List<Thread> readerThreads = new ArrayList<>(threadCount);
+
+        dispatchComplete = false;
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread readerThread = new Thread(() -> {
+                try {
+                    int readerIndex = nextReader.getAndIncrement();
+                    while (readFailure.get() == null && readerIndex < readers.size()) {
+                        final RecordReader<I> reader = readers.get(readerIndex);
+                        RunnableTaskContainer<I, C> container = getNextBatch(reader, parser, task, runnerContext);
+                        while (container.size() > 0) {
+                            readyBatches.put(container);
+                            container = getNextBatch(reader, parser, task, runnerContext);
+                        }
+                        readerIndex = nextReader.getAndIncrement();
+                    }
+                } catch (Exception ex) {
+                    readFailure.compareAndSet(null, ex);
+                } finally {
+                    if (activeReaders.decrementAndGet() == 0) {
+                        putEndOfInput(readyBatches, endOfInput);
+                    }
+                }
+            }, "task-runner-reader-" + readerThreads.size());
+            readerThread.setDaemon(true);
+            readerThreads.add(readerThread);
+        }
+
+        Thread collectorThread = new Thread(() -> collectBatchResults(inFlight), "task-runner-collector");
+        collectorThread.setDaemon(true);
+        collectorThread.start();
+        readerThreads.forEach(Thread::start);
+
+        try {
+            RunnableTaskContainer<I, C> container = readyBatches.take();
+            while (container != endOfInput) {
+                awaitRateLimit(container);
+                final long waitStart = System.nanoTime();
+                inFlight.acquire();
+                metrics.dispatchWaited(System.nanoTime() - waitStart);
+                submitBatch(container);
+                if (isCheckpointDue()) {
+                    inFlight.awaitIdle();
+                    writeCheckpoint();
+                }
+                container = readyBatches.take();
+            }
+        } finally {
+            dispatchComplete = true;
+            readerThreads.forEach(Thread::interrupt);
+            collectorThread.join();
+        }
+
+        if (readFailure.get() != null) {
+            throw readFailure.get();
+        }
+    }
+
+    /**
+     * Drives an {@link AsyncTask}. Each batch is parsed and started on the executor, and its completion stage releases
+     * a permit when it finishes, so no thread waits on a batch while the concurrency limit, by default
+     * {@code runner.task.max.inflight}, bounds the outstanding batches. Readers are consumed in turn on the calling
+     * thread.
+     */
+    private void executeAsync(final List<RecordReader<I>> readers,
+                              final LineParser<I> parser,
+                              final AsyncTask<I, C> task,
+                              final C runnerContext) throws Exception {
+        final ConcurrencyGate outstanding = new ConcurrencyGate(startConcurrencyLimit(numThreads));
+
+        for (RecordReader<I> reader : readers) {
+            RunnableTaskContainer<I, C> container = getNextBatch(reader, parser, task, runnerContext);
+            while (container.size() > 0) {
+                awaitRateLimit(container);
+                final long waitStart = System.nanoTime();
+                outstanding.acquire();
+                metrics.dispatchWaited(System.nanoTime() - waitStart);
+                submitAsyncBatch(container).whenComplete((result, failure) -> outstanding.release());
+                if (isCheckpointDue()) {
+                    outstanding.awaitIdle();
+                    writeCheckpoint();
+                }
+                container = getNextBatch(reader, parser, task, runnerContext);
             }
-        } catch (InterruptedException | ExecutionException ex) {
+        }
+
+        outstanding.awaitIdle();
+    }
+
+    private CompletableFuture<Boolean> submitAsyncBatch(final RunnableTaskContainer<I, C> container) {
+        final long batchNumber = submittedBatches;
+        final long recordCount = container.getInputRecords();
+        submittedBatches++;
+        metrics.batchSubmitted();
+
+        return CompletableFuture.supplyAsync(() -> {
+                    final long startTime = System.nanoTime();
+                    return container.callAsync().whenComplete((result, failure) ->
+                            completeBatch(batchNumber, recordCount, System.nanoTime() - startTime,
+                                    failure == null && Boolean.TRUE.equals(result)));
+                }, executorService)
+                .thenCompose(Function.identity())
+                .whenComplete(this::recordBatchResult);
+    }
+
+    private void submitBatch(final RunnableTaskContainer<I, C> container) {
+        final long batchNumber = submittedBatches;
+        final long recordCount = container.getInputRecords();
+        metrics.batchSubmitted();
+        completionService.submit(() -> {
+            final long startTime = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                final Boolean result = container.call();
+                succeeded = Boolean.TRUE.equals(result);
+                return result;
+            } finally {
+                completeBatch(batchNumber, recordCount, System.nanoTime() - startTime, succeeded);
+            }
+        });
+        submittedBatches++;
+    }
+
+    /**
+     * Feeds the outcome of a batch to the concurrency limit, the adaptive batch size and the checkpoint progress. This
+     * runs on the thread that finished the batch, before its result is collected.
+     */
+    private void completeBatch(final long batchNumber, final long recordCount, final long elapsedNanos,
+                               final boolean succeeded) {
+        metrics.batchCompleted(recordCount, elapsedNanos, succeeded);
+        concurrencyLimit.onBatchComplete(recordCount, elapsedNanos, succeeded);
+        if (batchSizer != null) {
+            batchSizer.record(recordCount, elapsedNanos);
+        }
+        if (checkpointTracker != null) {
+            checkpointTracker.complete(batchNumber, recordCount);
+        }
+    }
+
+    private boolean isCheckpointDue() {
+        return checkpointTracker != null && submittedBatches % checkpointInterval == 0;
+    }
+
+    /**
+     * Persists the contiguous progress along with the current statistics. Callers wait for every submitted batch to
+     * finish first, so the statistics contain exactly the records before the checkpoint and nothing after it. Task
+     * files are flushed first, so their output for those records is on disk before the checkpoint claims them.
+     */
+    private void writeCheckpoint() {
+        final long completedRecords = checkpointTracker.getCompletedRecords();
+        final long remainingRecords = inputSize == Long.MAX_VALUE ? Long.MAX_VALUE : inputSize - completedRecords;
+
+        try {
+            TaskFileWriter.flushAll();
+            Checkpoint.write(checkpointFile, checkpointInput, skipSize + completedRecords,
+                    remainingRecords);
+            LOG.info("Checkpoint after {} batches and {} records written to {}",
+                    checkpointTracker.getCompletedBatches(), completedRecords, checkpointFile);
+        } catch (IOException ex) {
+            LOG.error("Failed to write checkpoint " + checkpointFile, ex);
+        }
+    }
+
+    private void collectBatchResults(final ConcurrencyGate inFlight) {
+        long collectedBatches = 0;
+        try {
+            while (true) {
+                Future<Boolean> taskFuture = completionService.poll(COLLECTOR_POLL_MS, TimeUnit.MILLISECONDS);
+                if (taskFuture != null) {
+                    handleBatchResult(taskFuture);
+                    collectedBatches++;
+                    inFlight.release();
+                } else if (dispatchComplete && collectedBatches == submittedBatches) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOG.error("Interrupted while collecting batch results", ex);
+        }
+    }
+
+    private void putEndOfInput(final BlockingQueue<RunnableTaskContainer<I, C>> readyBatches,
+                               final RunnableTaskContainer<I, C> endOfInput) {
+        try {
+            while (!readyBatches.offer(endOfInput, COLLECTOR_POLL_MS, TimeUnit.MILLISECONDS)) {
+                if (dispatchComplete) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            // The dispatcher has already stopped and is no longer waiting for input
+        }
+    }
+
+    private void processBatchResults() {
+        try {
+            final long waitStart = System.nanoTime();
+            final Future<Boolean> taskFuture = completionService.take();
+            metrics.dispatchWaited(System.nanoTime() - waitStart);
+            handleBatchResult(taskFuture);
+        } catch (InterruptedException ex) {
             LOG.error("An error occurred executing task", ex);
         }
     }
 
-    private List<I> getInputBatch(LineReader<I> reader) throws Exception {
-        List<I> inputCollection = new ArrayList<>(batchSize);
+    private void handleBatchResult(final Future<Boolean> taskFuture) throws InterruptedException {
+        try {
+            recordBatchResult(taskFuture.get(), null);
+        } catch (ExecutionException ex) {
+            recordBatchResult(null, ex);
+        }
+    }
+
+    /**
+     * Counts a finished batch and reports progress. Asynchronous batches finish on whichever thread completes them,
+     * so this is synchronized.
+     */
+    private synchronized void recordBatchResult(final Boolean result, final Throwable failure) {
+        batchCount++;
+        if (failure != null) {
+            LOG.error("An error occurred executing task", failure);
+        } else if (result) {
+            if (batchCount % 100 == 0) {
+                final StringBuilder progress = new StringBuilder("Batches complete ").append(batchCount);
+                if (batchSizer != null) {
+                    progress.append(", batch size ").append(batchSizer.getBatchSize());
+                }
+                if (!LIMITER_FIXED.equals(limiterName)) {
+                    progress.append(", concurrency limit ").append(concurrencyLimit.getLimit());
+                }
+                LOG.info(progress.toString());
+                logOutputWriter.outputCounters();
+            }
+        } else {
+            LOG.error("Task failed");
+        }
+    }
+
+    private static int getPositiveInt(final Properties properties, final String propertyName, final int defaultValue) {
+        final int value = Integer.parseInt(properties.getProperty(propertyName, Integer.toString(defaultValue)));
+        if (value <= 0) {
+            throw new IllegalArgumentException(propertyName + " must be greater than zero");
+        }
+        return value;
+    }
+
+    private RunnableTaskContainer<I, C> getNextBatch(final RecordReader<I> reader,
+                                                     final LineParser<I> parser,
+                                                     final Task<I, C> task,
+                                                     final C runnerContext) throws Exception {
+        final long readStart = System.nanoTime();
+        // Rejected batches are written as raw lines, so they have to be kept until the batch has run
+        final RunnableTaskContainer<I, C> container;
+        if (parallelParsing || rejectWriter != null) {
+            container = new RunnableTaskContainer<>(getRawInputBatch(reader), parser, runnerContext, task);
+        } else {
+            final List<I> inputBatch = new ArrayList<>(getBatchSize());
+            final int inputRecords = getInputBatch(reader, inputBatch);
+            container = new RunnableTaskContainer<>(inputBatch, runnerContext, task);
+            container.setInputRecords(inputRecords);
+        }
+        container.setSplitGrain(forkJoinGrain);
+        container.setFailureHandling(retryPolicy, rejectWriter);
+        metrics.batchRead(System.nanoTime() - readStart);
+        return container;
+    }
+
+    private int getBatchSize() {
+        return batchSizer != null ? batchSizer.getBatchSize() : batchSize;
+    }
+
+    private List<String> getRawInputBatch(RecordReader<I> reader) throws Exception {
+        final int currentBatchSize = getBatchSize();
+        List<String> inputCollection = new ArrayList<>(currentBatchSize);
 
-        I inputLine;
+        String inputLine;
 
-        while (inputCollection.size() < batchSize && inputSize > currInputSize++
-                && (inputLine = reader.parseNextInputLine()) != null) {
+        while (inputCollection.size() < currentBatchSize && (inputLine = reader.readNextLine()) != null) {
             inputCollection.add(inputLine);
         }
 
         return inputCollection;
     }
-}
\ No newline at end of file
+
+    /**
+     * Fills the batch with parsed records, leaving out malformed lines, which the parser has already counted.
+     *
+     * @return the number of lines read, including malformed ones
+     */
+    private int getInputBatch(RecordReader<I> reader, List<I> inputCollection) throws Exception {
+        final int currentBatchSize = getBatchSize();
+        int linesRead = 0;
+
+        while (inputCollection.size() < currentBatchSize) {
+            final I inputLine;
+            try {
+                inputLine = reader.parseNextInputLine();
+            } catch (MalformedRecordException ex) {
+                linesRead++;
+                continue;
+            }
+            if (inputLine == null) {
+                break;
+            }
+            inputCollection.add(inputLine);
+            linesRead++;
+        }
+
+        return linesRead;
+    }
+
+    private interface PrimitiveBatchReader<I, A> {
+        int read(RecordReader<I> reader, A values, int length) throws Exception;
+    }
+
+    private interface PrimitiveBatchTask<A> {
+        boolean execute(A values, int length);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves the type arguments a task class gives to {@link Task}, following superclasses and interfaces such as
+ * {@link IntTask} that pass them on.
+ */
+final class TaskTypes {
+    private TaskTypes() {
+    }
+
+    /**
+     * @return the class given as the {@code index}th type argument of {@code target} somewhere above {@code type}
+     * @throws IllegalStateException when the argument is not a concrete class, eg. when it is left generic
+     */
+    static Class<?> resolveTypeArgument(final Class<?> type, final Class<?> target, final int index) {
+        final Type argument = findTypeArgument(type, target, index, new HashMap<>());
+        if (argument instanceof Class) {
+            return (Class<?>) argument;
+        }
+        if (argument instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) argument).getRawType();
+        }
+        throw new IllegalStateException("Unable to resolve type argument " + index + " of " + target.getSimpleName()
+                + " for " + type.getName());
+    }
+
+    private static Type findTypeArgument(final Type type, final Class<?> target, final int index,
+                                         final Map<TypeVariable<?>, Type> bindings) {
+        final Class<?> rawType;
+        if (type instanceof ParameterizedType) {
+            final ParameterizedType parameterizedType = (ParameterizedType) type;
+            rawType = (Class<?>) parameterizedType.getRawType();
+            final TypeVariable<?>[] parameters = rawType.getTypeParameters();
+            final Type[] arguments = parameterizedType.getActualTypeArguments();
+            for (int i = 0; i < parameters.length; i++) {
+                bindings.put(parameters[i], resolve(arguments[i], bindings));
+            }
+            if (rawType == target) {
+                return bindings.get(parameters[index]);
+            }
+        } else if (type instanceof Class) {
+            rawType = (Class<?>) type;
+        } else {
+            return null;
+        }
+
+        for (Type genericInterface : rawType.getGenericInterfaces()) {
+            final Type argument = findTypeArgument(genericInterface, target, index, bindings);
+            if (argument != null) {
+                return argument;
+            }
+        }
+        return rawType.getGenericSuperclass() != null
+                ? findTypeArgument(rawType.getGenericSuperclass(), target, index, bindings)
+                : null;
+    }
+
+    private static Type resolve(final Type type, final Map<TypeVariable<?>, Type> bindings) {
+        Type resolved = type;
+        while (resolved instanceof TypeVariable && bindings.containsKey(resolved)) {
+            resolved = bindings.get(resolved);
+        }
+        return resolved;
+    }
+}
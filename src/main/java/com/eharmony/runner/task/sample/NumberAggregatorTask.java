@@ -17,22 +17,39 @@
 package com.eharmony.runner.task.sample;
 
 import com.eharmony.runner.statistics.Aggregators;
+import com.eharmony.runner.statistics.Counter;
 import com.eharmony.runner.statistics.Counters;
 import com.eharmony.runner.task.DefaultRunnerContext;
-import com.eharmony.runner.task.Task;
+import com.eharmony.runner.task.IntTask;
 
 import java.util.Collection;
 
-public class NumberAggregatorTask implements Task<Integer, DefaultRunnerContext> {
+public class NumberAggregatorTask implements IntTask<DefaultRunnerContext> {
+    private final Counter numValues = Counters.counter("NUM_VALUES");
+    private final Counter sumValues = Counters.counter("SUM_VALUES");
+
     @Override
     public boolean executeTask(final Collection<Integer> input, final DefaultRunnerContext runnerContext) {
         input.forEach(this::aggregateNumber);
         return true;
     }
 
-    private void aggregateNumber(final Integer value) {
-        Counters.incrementCounter("NUM_VALUES");
-        Counters.incrementCounterByValue("SUM_VALUES", value);
+    @Override
+    public boolean executeIntTask(final int[] values, final int length, final DefaultRunnerContext runnerContext) {
+        for (int i = 0; i < length; i++) {
+            aggregateNumber(values[i]);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSplittable() {
+        return true;
+    }
+
+    private void aggregateNumber(final int value) {
+        numValues.increment();
+        sumValues.add(value);
         Aggregators.aggregate("VALUE", value);
     }
 }
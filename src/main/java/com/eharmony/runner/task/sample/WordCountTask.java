@@ -16,7 +16,7 @@
 
 package com.eharmony.runner.task.sample;
 
-import com.eharmony.runner.statistics.Counters;
+import com.eharmony.runner.statistics.KeyedCounters;
 import com.eharmony.runner.task.DefaultRunnerContext;
 import com.eharmony.runner.task.Task;
 import org.apache.commons.lang.StringUtils;
@@ -24,19 +24,26 @@ import org.apache.commons.lang.StringUtils;
 import java.util.Collection;
 
 public class WordCountTask implements Task<String, DefaultRunnerContext> {
+    private static final String WORDS_TABLE = "WORDS";
+
     @Override
     public boolean executeTask(final Collection<String> input, final DefaultRunnerContext runnerContext) {
         input.forEach(this::countWords);
         return true;
     }
 
+    @Override
+    public boolean isSplittable() {
+        return true;
+    }
+
     private void countWords(final String line) {
         final String[] tokens = line.split("\\s+");
 
         for (String token : tokens) {
             final String sanitizedString = getSanitizedString(token);
             if (StringUtils.isNotBlank(sanitizedString)) {
-                Counters.incrementCounter(sanitizedString);
+                KeyedCounters.increment(WORDS_TABLE, sanitizedString);
             }
         }
     }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.file;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void roundsTheCapacityUpToAPowerOfTwo() {
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(8));
+    }
+
+    @Test
+    public void keepsOrderAcrossManyWraparounds() {
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        int nextOffered = 0;
+        int nextPolled = 0;
+
+        // Offer three and poll two at a time, so the head and tail wrap around at every position of the ring
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 3 && buffer.offer(nextOffered); i++) {
+                nextOffered++;
+            }
+            for (int i = 0; i < 2; i++) {
+                assertEquals(Integer.valueOf(nextPolled++), buffer.poll());
+            }
+        }
+        Integer value;
+        while ((value = buffer.poll()) != null) {
+            assertEquals(Integer.valueOf(nextPolled++), value);
+        }
+
+        assertEquals(nextOffered, nextPolled);
+        assertTrue(nextOffered > 1000 * 2);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void refusesOffersWhileFullAndAcceptsThemOncePolled() {
+        final MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+
+        assertTrue(buffer.offer("a"));
+        assertTrue(buffer.offer("b"));
+        assertFalse(buffer.offer("c"));
+        assertFalse(buffer.isEmpty());
+
+        assertEquals("a", buffer.poll());
+        assertTrue(buffer.offer("c"));
+        assertFalse(buffer.offer("d"));
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void deliversEveryValueOfConcurrentProducersInTheirOrder() throws Exception {
+        final int producerCount = 4;
+        final int valuesPerProducer = 100000;
+        final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(16);
+
+        final List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < producerCount; producer++) {
+            final long producerId = producer;
+            final Thread thread = new Thread(() -> {
+                for (long sequence = 0; sequence < valuesPerProducer; sequence++) {
+                    final long[] value = {producerId, sequence};
+                    while (!buffer.offer(value)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        final long[] nextSequence = new long[producerCount];
+        for (long received = 0; received < (long) producerCount * valuesPerProducer; ) {
+            final long[] value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(nextSequence[(int) value[0]]++, value[1]);
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        for (long sequence : nextSequence) {
+            assertEquals(valuesPerProducer, sequence);
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}
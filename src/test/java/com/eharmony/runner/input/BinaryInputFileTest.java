@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryInputFileTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compilesIntsAndReadsThemBack() throws Exception {
+        final File textFile = writeText("ints.txt", "1\n-2\r\n2147483647\n-2147483648\n0");
+        final File binaryFile = folder.newFile("ints.bin");
+
+        final BinaryInputFile compiled = BinaryInputFile.compile(textFile, new IntegerLineParser(), binaryFile);
+
+        assertEquals(BinaryFormat.INT32, compiled.getFormat());
+        assertEquals(5, compiled.getRecordCount());
+        assertTrue(BinaryInputFile.isBinary(binaryFile));
+        assertFalse(BinaryInputFile.isBinary(textFile));
+        assertEquals(BinaryInputFile.HEADER_SIZE + 5 * 4, binaryFile.length());
+
+        final BinaryInputFile opened = BinaryInputFile.open(binaryFile);
+        assertEquals(BinaryFormat.INT32, opened.getFormat());
+        assertEquals(5, opened.getRecordCount());
+        assertEquals(Arrays.<Object>asList(1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 0),
+                readRecords(opened, new IntegerLineParser(), 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void readsIntsStraightIntoAnArray() throws Exception {
+        final BinaryInputFile compiled = compile("1\n2\n3\n4\n5\n6\n7\n", new IntegerLineParser());
+
+        try (BinaryRecordReader<Integer> reader = new BinaryRecordReader<>(compiled, new IntegerLineParser(), 2, 4)) {
+            final int[] values = new int[3];
+            assertEquals(3, reader.readInts(new IntegerLineParser(), values, values.length));
+            assertArrayEquals(new int[]{3, 4, 5}, values);
+            assertEquals(1, reader.readInts(new IntegerLineParser(), values, values.length));
+            assertEquals(6, values[0]);
+            assertEquals(0, reader.readInts(new IntegerLineParser(), values, values.length));
+        }
+    }
+
+    @Test
+    public void compilesLongs() throws Exception {
+        final BinaryInputFile compiled = compile("9223372036854775807\n-9223372036854775808\n42\n",
+                new LongNumberLineParser());
+
+        assertEquals(BinaryFormat.INT64, compiled.getFormat());
+        assertEquals(Arrays.<Object>asList(Long.MAX_VALUE, Long.MIN_VALUE, 42L),
+                readRecords(compiled, new LongNumberLineParser(), 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void compilesPairsAndKeepsTheirSeparator() throws Exception {
+        final BinaryInputFile compiled = compile("1\t2\n-3\t4\n", new PairIntegerLineParser());
+
+        assertEquals(BinaryFormat.INT32_PAIR, compiled.getFormat());
+        assertEquals(Arrays.<Object>asList(new Pair<>(1, 2), new Pair<>(-3, 4)),
+                readRecords(compiled, new PairIntegerLineParser(), 0, Long.MAX_VALUE));
+
+        try (BinaryRecordReader<Pair<Integer, Integer>> reader =
+                     new BinaryRecordReader<>(compiled, new PairIntegerLineParser(), 1, 1)) {
+            assertEquals("-3\t4", reader.readNextLine());
+            assertNull(reader.readNextLine());
+        }
+    }
+
+    @Test
+    public void compilesGzipInput() throws Exception {
+        final File textFile = folder.newFile("ints.txt.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(textFile)),
+                StandardCharsets.UTF_8)) {
+            writer.write("5\n6\n7\n");
+        }
+
+        final BinaryInputFile compiled =
+                BinaryInputFile.compile(textFile, new IntegerLineParser(), folder.newFile("ints.bin"));
+
+        assertEquals(Arrays.<Object>asList(5, 6, 7), readRecords(compiled, new IntegerLineParser(), 0, 3));
+    }
+
+    @Test
+    public void readsOnlyTheRequestedRange() throws Exception {
+        final BinaryInputFile compiled = compile("1\n2\n3\n4\n5\n", new IntegerLineParser());
+
+        assertEquals(Arrays.<Object>asList(2, 3), readRecords(compiled, new IntegerLineParser(), 1, 2));
+        assertEquals(Arrays.<Object>asList(4, 5), readRecords(compiled, new IntegerLineParser(), 3, 10));
+        assertEquals(Arrays.<Object>asList(), readRecords(compiled, new IntegerLineParser(), 7, 10));
+    }
+
+    @Test
+    public void parsesRecordsWithAParserOfAnotherType() throws Exception {
+        final BinaryInputFile compiled = compile("1\n-2\n3\n", new IntegerLineParser());
+
+        assertEquals(Arrays.<Object>asList(1L, -2L, 3L), readRecords(compiled, new LongNumberLineParser(), 0, 3));
+        assertEquals(Arrays.<Object>asList("1", "-2", "3"), readRecords(compiled, new StringLineParser(), 0, 3));
+
+        try (BinaryRecordReader<Long> reader = new BinaryRecordReader<>(compiled, new LongNumberLineParser(), 0, 3)) {
+            final long[] values = new long[3];
+            assertEquals(3, reader.readLongs(new LongNumberLineParser(), values, values.length));
+            assertArrayEquals(new long[]{1, -2, 3}, values);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAParserThatCannotParseTheRecords() throws Exception {
+        final BinaryInputFile compiled = compile("1\n2\n", new IntegerLineParser());
+        final LineParser<String[]> parser = input -> {
+            throw new IllegalArgumentException("Expected three columns: " + input);
+        };
+
+        new BinaryRecordReader<>(compiled, parser, 0, 2).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesToCompileRecordsOfDifferentTypes() throws Exception {
+        final LineParser<Object> parser = input -> input.contains("L")
+                ? (Object) Long.parseLong(input.replace("L", ""))
+                : (Object) Integer.parseInt(input);
+
+        compile("1\n2L\n", parser);
+    }
+
+    private BinaryInputFile compile(final String text, final LineParser<?> parser) throws Exception {
+        return BinaryInputFile.compile(writeText("input.txt", text), parser, folder.newFile("input.bin"));
+    }
+
+    private File writeText(final String name, final String text) throws Exception {
+        final File file = folder.newFile(name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static <I> List<Object> readRecords(final BinaryInputFile inputFile, final LineParser<I> parser,
+                                                final long firstRecord, final long recordLimit) throws Exception {
+        final List<Object> records = new ArrayList<>();
+        try (BinaryRecordReader<I> reader = new BinaryRecordReader<>(inputFile, parser, firstRecord, recordLimit)) {
+            I record;
+            while ((record = reader.parseNextInputLine()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ByteLineTest {
+
+    @Test
+    public void parsesIntsLikeIntegerParseInt() {
+        for (String input : new String[]{"0", "-0", "+0", "7", "-7", "+7", "000123", "-000123", "2147483647",
+                "-2147483648", "+2147483647"}) {
+            assertEquals(input, Integer.parseInt(input), ByteLine.of(input).parseInt());
+        }
+    }
+
+    @Test
+    public void parsesLongsLikeLongParseLong() {
+        for (String input : new String[]{"0", "-1", "+1", "2147483648", "-2147483649", "9223372036854775807",
+                "-9223372036854775808", "+9223372036854775807", "0009223372036854775807"}) {
+            assertEquals(input, Long.parseLong(input), ByteLine.of(input).parseLong());
+        }
+    }
+
+    @Test
+    public void rejectsIntsOutsideTheIntRange() {
+        assertInvalidInt("2147483648");
+        assertInvalidInt("-2147483649");
+        assertInvalidInt("+2147483648");
+        assertInvalidInt("9999999999");
+        assertInvalidInt("99999999999999999999");
+    }
+
+    @Test
+    public void rejectsLongsOutsideTheLongRange() {
+        assertInvalidLong("9223372036854775808");
+        assertInvalidLong("-9223372036854775809");
+        assertInvalidLong("+9223372036854775808");
+        assertInvalidLong("18446744073709551616");
+        assertInvalidLong("99999999999999999999");
+    }
+
+    @Test
+    public void rejectsMalformedNumbers() {
+        for (String input : new String[]{"", "-", "+", "--1", "+-1", "1-", "1 ", " 1", "1a", "0x10", "1.0"}) {
+            assertInvalidInt(input);
+            assertInvalidLong(input);
+        }
+    }
+
+    @Test
+    public void parsesARangeOfTheLine() {
+        final ByteLine line = ByteLine.of("12\t-2147483648\t34");
+
+        assertEquals(12, line.parseInt(0, 2));
+        assertEquals(Integer.MIN_VALUE, line.parseInt(3, 14));
+        assertEquals(34L, line.parseLong(15, 17));
+    }
+
+    private static void assertInvalidInt(final String input) {
+        try {
+            ByteLine.of(input).parseInt();
+            fail("Expected \"" + input + "\" to be rejected as an int");
+        } catch (NumberFormatException expected) {
+            // the same exception as Integer.parseInt
+        }
+    }
+
+    private static void assertInvalidLong(final String input) {
+        try {
+            ByteLine.of(input).parseLong();
+            fail("Expected \"" + input + "\" to be rejected as a long");
+        } catch (NumberFormatException expected) {
+            // the same exception as Long.parseLong
+        }
+    }
+}
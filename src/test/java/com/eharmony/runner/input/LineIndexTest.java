@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eharmony.runner.input;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineIndexTest {
+    private static final String TEXT = "zero\none\r\ntwo\rthree\n\nfive\r\rseven";
+    private static final List<String> LINES = Arrays.asList("zero", "one", "two", "three", "", "five", "", "seven");
+    private static final long[] LINE_OFFSETS = {0, 5, 10, 14, 20, 21, 26, 27};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsTheOffsetOfEveryLine() throws Exception {
+        final File inputFile = writeText(TEXT);
+
+        for (int interval = 1; interval <= LINES.size() + 1; interval++) {
+            final LineIndex index = LineIndex.build(inputFile, interval);
+            assertEquals(LINES.size(), index.getLineCount());
+            for (int record = 0; record < LINES.size(); record++) {
+                assertEquals("interval " + interval + ", record " + record, LINE_OFFSETS[record],
+                        index.findLineOffset(inputFile, record));
+            }
+            assertEquals(inputFile.length(), index.findLineOffset(inputFile, LINES.size()));
+        }
+    }
+
+    @Test
+    public void loadsTheIndexItWrote() throws Exception {
+        final File inputFile = writeText(TEXT);
+        LineIndex.build(inputFile, 3).write(inputFile);
+
+        final LineIndex index = LineIndex.load(inputFile).get();
+
+        assertEquals(LINES.size(), index.getLineCount());
+        assertEquals(inputFile.length(), index.getFileLength());
+        for (int record = 0; record < LINES.size(); record++) {
+            assertEquals(LINE_OFFSETS[record], index.findLineOffset(inputFile, record));
+        }
+    }
+
+    @Test
+    public void ignoresTheIndexOnceTheFileChanges() throws Exception {
+        final File inputFile = writeText(TEXT);
+        LineIndex.build(inputFile, 3).write(inputFile);
+
+        Files.write(inputFile.toPath(), (TEXT + "\neight").getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(LineIndex.load(inputFile).isPresent());
+    }
+
+    @Test
+    public void ignoresAMissingOrTruncatedIndex() throws Exception {
+        final File inputFile = writeText(TEXT);
+        assertFalse(LineIndex.load(inputFile).isPresent());
+
+        LineIndex.build(inputFile, 1).write(inputFile);
+        final File indexFile = LineIndex.getIndexFile(inputFile);
+        final byte[] indexBytes = Files.readAllBytes(indexFile.toPath());
+        Files.write(indexFile.toPath(), Arrays.copyOf(indexBytes, indexBytes.length - 4));
+
+        assertFalse(LineIndex.load(inputFile).isPresent());
+    }
+
+    @Test
+    public void seeksToTheSameLinesAsReadingFromTheStart() throws Exception {
+        final File inputFile = writeText(TEXT);
+        final LineIndex index = LineIndex.build(inputFile, 2);
+
+        for (int skip = 0; skip <= LINES.size(); skip++) {
+            final List<String> expected = LINES.subList(skip, LINES.size());
+            try (ByteLineReader<String> reader =
+                         new ByteLineReader<>(inputFile, new StringLineParser(), skip, Long.MAX_VALUE, index)) {
+                assertEquals(expected, readLines(reader));
+            }
+            try (ByteLineReader<String> reader =
+                         new ByteLineReader<>(inputFile, new StringLineParser(), skip, Long.MAX_VALUE)) {
+                assertEquals(expected, readLines(reader));
+            }
+        }
+    }
+
+    @Test
+    public void splitsAgreeWithTheIndexOnLineBoundaries() throws Exception {
+        final File inputFile = writeText(TEXT);
+        final LineIndex index = LineIndex.build(inputFile, 2);
+
+        for (int splitCount = 1; splitCount <= LINES.size() + 1; splitCount++) {
+            final List<String> lines = new ArrayList<>();
+            long lineCount = 0;
+            for (FileSplit split : FileSplit.createSplits(inputFile, splitCount)) {
+                assertTrue(split + " does not start at a line",
+                        split.getStart() == 0 || Arrays.binarySearch(LINE_OFFSETS, split.getStart()) >= 0);
+                lineCount += split.countLines();
+                try (SplitLineReader<String> reader =
+                             new SplitLineReader<>(split, new StringLineParser(), 0, Long.MAX_VALUE)) {
+                    lines.addAll(readLines(reader));
+                }
+            }
+            assertEquals(index.getLineCount(), lineCount);
+            assertEquals(LINES, lines);
+        }
+    }
+
+    private File writeText(final String text) throws Exception {
+        final File file = folder.newFile("input.txt");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> readLines(final RecordReader<String> reader) throws Exception {
+        final List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readNextLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 eHarmony, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eharmony.runner.task;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CheckpointTrackerTest {
+
+    @Test
+    public void countsBatchesCompletedInOrder() {
+        final CheckpointTracker tracker = new CheckpointTracker();
+        tracker.complete(0, 10);
+        tracker.complete(1, 20);
+
+        assertEquals(2, tracker.getCompletedBatches());
+        assertEquals(30, tracker.getCompletedRecords());
+    }
+
+    @Test
+    public void holdsBackBatchesCompletedAfterAGap() {
+        final CheckpointTracker tracker = new CheckpointTracker();
+        tracker.complete(1, 20);
+        tracker.complete(2, 30);
+
+        assertEquals(0, tracker.getCompletedBatches());
+        assertEquals(0, tracker.getCompletedRecords());
+
+        tracker.complete(4, 50);
+        tracker.complete(0, 10);
+
+        assertEquals(3, tracker.getCompletedBatches());
+        assertEquals(60, tracker.getCompletedRecords());
+
+        tracker.complete(3, 40);
+
+        assertEquals(5, tracker.getCompletedBatches());
+        assertEquals(150, tracker.getCompletedRecords());
+    }
+
+    @Test
+    public void countsEveryRecordWhenBatchesCompleteInReverse() {
+        final CheckpointTracker tracker = new CheckpointTracker();
+        for (int batch = 99; batch > 0; batch--) {
+            tracker.complete(batch, batch);
+            assertEquals(0, tracker.getCompletedBatches());
+        }
+        tracker.complete(0, 0);
+
+        assertEquals(100, tracker.getCompletedBatches());
+        assertEquals(99 * 100 / 2, tracker.getCompletedRecords());
+    }
+}